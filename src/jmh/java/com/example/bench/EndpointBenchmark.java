@@ -0,0 +1,122 @@
+package com.example.bench;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.SocialMediaApp;
+import com.example.entity.Message;
+import com.example.service.MessageService;
+
+/**
+ * Round trips through the HTTP endpoints of a running app.
+ *
+ * The getMessageBy* pair compares a valid message id with an unparseable one, which is answered with a
+ * pre-built 400 without reaching the bulkhead. createInvalidMessage posts a blank text, which the validation
+ * pipeline rejects before any query.
+ *
+ * The app is seeded with MESSAGES extra messages from account 9999, so both list endpoints return
+ * non-trivial bodies. Rate limiting is switched off so the benchmark measures the request path rather than
+ * 429s. The gc profiler counts allocations on every thread of the JVM, so gc.alloc.rate.norm includes the
+ * HttpClient side of each request; compare it between builds rather than reading it as server-only bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EndpointBenchmark {
+    private static final int MESSAGES = 1000;
+
+    private ConfigurableApplicationContext app;
+    private HttpClient webClient;
+    private HttpRequest allMessages;
+    private HttpRequest accountMessages;
+    private HttpRequest messageById;
+    private HttpRequest messageByInvalidId;
+    private HttpRequest invalidMessage;
+
+    @Setup
+    public void setUp() {
+        app = SpringApplication.run(SocialMediaApp.class, "--app.rate-limit.enabled=false");
+        MessageService messageService = app.getBean(MessageService.class);
+        for (int i = 0; i < MESSAGES; i++) {
+            messageService.createMessage(new Message(9999, "benchmark message " + i, 1669947792L));
+        }
+        webClient = HttpClient.newHttpClient();
+        allMessages = get("/messages");
+        accountMessages = get("/accounts/9999/messages");
+        messageById = get("/messages/9999");
+        messageByInvalidId = get("/messages/not-a-number");
+        invalidMessage = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"postedBy\":9999,\"messageText\":\"\",\"timePostedEpoch\":1669947792}"))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        SpringApplication.exit(app);
+    }
+
+    @Benchmark
+    public String getAllMessages() throws IOException, InterruptedException {
+        return send(allMessages);
+    }
+
+    @Benchmark
+    public String getMessagesByAccount() throws IOException, InterruptedException {
+        return send(accountMessages);
+    }
+
+    @Benchmark
+    public String getMessageById() throws IOException, InterruptedException {
+        return send(messageById);
+    }
+
+    @Benchmark
+    public String getMessageByInvalidId() throws IOException, InterruptedException {
+        return send(messageByInvalidId, 400);
+    }
+
+    @Benchmark
+    public String createInvalidMessage() throws IOException, InterruptedException {
+        return send(invalidMessage, 400);
+    }
+
+    String send(HttpRequest request) throws IOException, InterruptedException {
+        return send(request, 200);
+    }
+
+    String send(HttpRequest request, int expectedStatus) throws IOException, InterruptedException {
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != expectedStatus) {
+            throw new IllegalStateException(request.uri() + " returned " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    static HttpRequest get(String path) {
+        return HttpRequest.newBuilder().uri(URI.create("http://localhost:8080" + path)).build();
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.bench;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.entity.Message;
+import com.example.store.MessageHotSet;
+import com.example.store.OffHeapMessageStore;
+
+/**
+ * GC cost of holding about RESIDENT messages in the hot set: OffHeapMessageStore against the same messages
+ * kept as Message objects in a ConcurrentHashMap on the heap.
+ *
+ * Every operation writes one new message, which pushes the oldest one out, and reads one random resident
+ * message. Compare gc.count and gc.time from the gc profiler between the two stores; the time per operation
+ * shows what the off-heap encoding costs in return.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class HotSetBenchmark {
+    private static final int RESIDENT = 1_000_000;
+    // about 56 bytes per record for the texts below
+    private static final int OFF_HEAP_BYTES = 56 * RESIDENT;
+
+    @Param({"heap", "offheap"})
+    public String store;
+
+    private MessageHotSet hotSet;
+    private int nextId;
+
+    @Setup
+    public void setUp() {
+        hotSet = store.equals("heap") ? new HeapHotSet(RESIDENT) : new OffHeapMessageStore(OFF_HEAP_BYTES);
+        for (nextId = 1; nextId <= RESIDENT; nextId++) {
+            hotSet.put(message(nextId));
+        }
+    }
+
+    @Benchmark
+    public Message writeAndRead() {
+        hotSet.put(message(nextId++));
+        return hotSet.get(nextId - 1 - ThreadLocalRandom.current().nextInt(RESIDENT / 2));
+    }
+
+    static Message message(int id) {
+        return new Message(id, 9000 + id % 1000, "hot set message " + id, 1669947792L + id);
+    }
+
+    /**
+     * The on-heap equivalent: the latest RESIDENT messages by id, as Message objects.
+     */
+    static class HeapHotSet implements MessageHotSet {
+        private final Map<Integer, Message> messages = new ConcurrentHashMap<>();
+        private final int resident;
+        private long version;
+
+        HeapHotSet(int resident) {
+            this.resident = resident;
+        }
+
+        @Override
+        public Message get(int messageId) {
+            return messages.get(messageId);
+        }
+
+        @Override
+        public void put(Message message) {
+            version++;
+            messages.put(message.getMessageId(), message);
+            messages.remove(message.getMessageId() - resident);
+        }
+
+        @Override
+        public void putIfUnchanged(Message message, long versionBeforeLoad) {
+            put(message);
+        }
+
+        @Override
+        public void remove(int messageId) {
+            version++;
+            messages.remove(messageId);
+        }
+
+        @Override
+        public long getVersion() {
+            return version;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.controller.PathIds;
+
+/**
+ * PathIds.parse against the Integer.parseInt and NumberFormatException catch the controller used before,
+ * for a valid id and for an invalid one. gc.alloc.rate.norm of the invalid variants is the per-request
+ * garbage a bad id used to cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathIdBenchmark {
+    // fields rather than constants, so the parse cannot be folded away
+    public String validId = "1234567";
+    public String invalidId = "12a4567";
+
+    @Benchmark
+    public long pathIdsValid() {
+        return PathIds.parse(validId);
+    }
+
+    @Benchmark
+    public long pathIdsInvalid() {
+        return PathIds.parse(invalidId);
+    }
+
+    @Benchmark
+    public long parseIntValid() {
+        return parseInt(validId);
+    }
+
+    @Benchmark
+    public long parseIntInvalid() {
+        return parseInt(invalidId);
+    }
+
+    static long parseInt(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return PathIds.INVALID;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.store.PostedByIndex;
+
+/**
+ * PostedByIndex against the boxed HashMap<Integer, List<Integer>> it replaces, holding MESSAGES message ids
+ * spread over ACCOUNTS accounts.
+ *
+ * Each operation looks up a random account and sums its ids, so the boxed variant pays for unboxing as a
+ * caller would. The heap taken by the filled index is printed once in setup, since JMH does not report
+ * retained memory. The boxed map is a plain HashMap without any locking, which favours it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class PostedByIndexBenchmark {
+    private static final int ACCOUNTS = 100_000;
+    private static final int MESSAGES = 1_000_000;
+
+    @Param({"primitive", "boxed"})
+    public String index;
+
+    private PostedByIndex postedByIndex;
+    private Map<Integer, List<Integer>> boxedIndex;
+
+    @Setup
+    public void setUp() {
+        long before = usedHeap();
+        if (index.equals("primitive")) {
+            postedByIndex = new PostedByIndex();
+            for (int id = 1; id <= MESSAGES; id++) {
+                postedByIndex.add(id % ACCOUNTS, id);
+            }
+        } else {
+            boxedIndex = new HashMap<>();
+            for (int id = 1; id <= MESSAGES; id++) {
+                boxedIndex.computeIfAbsent(id % ACCOUNTS, postedBy -> new ArrayList<>()).add(id);
+            }
+        }
+        System.out.printf("%n%s index of %d ids: %d KB of heap%n", index, MESSAGES, (usedHeap() - before) / 1024);
+    }
+
+    @Benchmark
+    public long lookup() {
+        int postedBy = ThreadLocalRandom.current().nextInt(ACCOUNTS);
+        long sum = 0;
+        if (postedByIndex != null) {
+            for (int id : postedByIndex.get(postedBy)) {
+                sum += id;
+            }
+        } else {
+            for (int id : boxedIndex.getOrDefault(postedBy, List.of())) {
+                sum += id;
+            }
+        }
+        return sum;
+    }
+
+    static long usedHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.SocialMediaApp;
+import com.example.entity.Message;
+import com.example.repository.MessageReadRepository;
+import com.example.repository.MessageRepository;
+import com.example.service.MessageService;
+
+/**
+ * The two list reads behind GET /messages and GET /accounts/{id}/messages, loaded once through the JPA
+ * repository the endpoints used before and once through the JDBC MessageReadRepository they use now.
+ *
+ * Run with the gc profiler (the bench profile does) and compare gc.alloc.rate.norm between the jpa and jdbc
+ * variants: that is the per-request allocation the detached row mapping saves. No web server is started, so
+ * the numbers are not mixed with HTTP allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadPathBenchmark {
+    private static final int MESSAGES = 1000;
+
+    private ConfigurableApplicationContext app;
+    private MessageRepository messageRepository;
+    private MessageReadRepository messageReadRepository;
+
+    @Setup
+    public void setUp() {
+        app = SpringApplication.run(SocialMediaApp.class, "--spring.main.web-application-type=none");
+        MessageService messageService = app.getBean(MessageService.class);
+        for (int i = 0; i < MESSAGES; i++) {
+            messageService.createMessage(new Message(9999, "benchmark message " + i, 1669947792L));
+        }
+        messageRepository = app.getBean(MessageRepository.class);
+        messageReadRepository = app.getBean(MessageReadRepository.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        SpringApplication.exit(app);
+    }
+
+    @Benchmark
+    public List<Message> allMessagesJpa() {
+        return messageRepository.findAll();
+    }
+
+    @Benchmark
+    public List<Message> allMessagesJdbc() {
+        return messageReadRepository.findAll();
+    }
+
+    @Benchmark
+    public List<Message> accountMessagesJpa() {
+        return messageRepository.findByPostedBy(9999);
+    }
+
+    @Benchmark
+    public List<Message> accountMessagesJdbc() {
+        return messageReadRepository.findByPostedBy(9999);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.entity.Account;
+import com.example.entity.Message;
+import com.example.validation.ValidationResult;
+import com.example.validation.Violation;
+import com.example.validation.WriteValidators;
+
+/**
+ * Rejections per microsecond of invalid writes through the WriteValidators pipeline, against the same checks
+ * reporting the rejection with an exception that fills in its stack trace, as the services did before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+    public Message blankMessage = new Message(9999, "", 1669947792L);
+    public Account shortPassword = new Account("user", "abc");
+
+    @Benchmark
+    public Violation pipelineRejectsMessage() {
+        return WriteValidators.CREATE_MESSAGE.validate(blankMessage).getViolation();
+    }
+
+    @Benchmark
+    public Violation pipelineRejectsAccount() {
+        return WriteValidators.REGISTER_ACCOUNT.validate(shortPassword).getViolation();
+    }
+
+    @Benchmark
+    public Violation exceptionRejectsMessage() {
+        return throwing(WriteValidators.CREATE_MESSAGE.validate(blankMessage));
+    }
+
+    @Benchmark
+    public Violation exceptionRejectsAccount() {
+        return throwing(WriteValidators.REGISTER_ACCOUNT.validate(shortPassword));
+    }
+
+    static Violation throwing(ValidationResult result) {
+        try {
+            if (!result.isValid()) {
+                throw new IllegalArgumentException(result.getViolation().getMessage());
+            }
+            return null;
+        } catch (IllegalArgumentException e) {
+            return result.getViolation();
+        }
+    }
+}
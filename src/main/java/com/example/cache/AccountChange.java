@@ -0,0 +1,64 @@
+package com.example.cache;
+
+/**
+ * A registration or a change to the follow graph, published by the node that made it so other nodes can
+ * update what they keep in memory about accounts.
+ */
+public class AccountChange {
+
+    public enum Type {
+        REGISTERED, FOLLOWED, UNFOLLOWED
+    }
+
+    private final Type type;
+    private final int accountId;
+    private final String username;
+    private final Integer followeeId;
+    private final String originNodeId;
+
+    /**
+     * @param type the kind of change.
+     * @param accountId the registered account, or the follower.
+     * @param username the registered username; null for follow changes.
+     * @param followeeId the followed or unfollowed account; null for registrations.
+     * @param originNodeId the node that made the change.
+     */
+    public AccountChange(Type type, int accountId, String username, Integer followeeId, String originNodeId) {
+        this.type = type;
+        this.accountId = accountId;
+        this.username = username;
+        this.followeeId = followeeId;
+        this.originNodeId = originNodeId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getAccountId() {
+        return accountId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Integer getFolloweeId() {
+        return followeeId;
+    }
+
+    public String getOriginNodeId() {
+        return originNodeId;
+    }
+
+    @Override
+    public String toString() {
+        return "AccountChange{" +
+                "type=" + type +
+                ", accountId=" + accountId +
+                ", username='" + username + '\'' +
+                ", followeeId=" + followeeId +
+                ", originNodeId='" + originNodeId + '\'' +
+                '}';
+    }
+}
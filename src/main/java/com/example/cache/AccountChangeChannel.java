@@ -0,0 +1,60 @@
+package com.example.cache;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tells the other nodes about registrations and follow changes made on this one, over the channel of the
+ * RemoteMessageCache.
+ *
+ * UsernameBloomFilter, CredentialCache and the follow graph in FeedService are kept per node. Without this,
+ * a name registered on one node would stay "absent" on the others, and their feeds would miss new follows,
+ * until they restart. Delivery is asynchronous, so another node may still answer from its old state for
+ * the moment it takes a change to arrive.
+ */
+@Component
+public class AccountChangeChannel {
+
+    private final RemoteMessageCache remote;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final List<Consumer<AccountChange>> listeners = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public AccountChangeChannel(RemoteMessageCache remote) {
+        this.remote = remote;
+        remote.subscribeToAccountChanges(this::onChange);
+    }
+
+    /**
+     * Publish a change that this node has committed.
+     *
+     * @param type the kind of change.
+     * @param accountId the registered account, or the follower.
+     * @param username the registered username; null for follow changes.
+     * @param followeeId the followed or unfollowed account; null for registrations.
+     */
+    public void publish(AccountChange.Type type, int accountId, String username, Integer followeeId) {
+        remote.publish(new AccountChange(type, accountId, username, followeeId, nodeId));
+    }
+
+    /**
+     * @param listener told about every change that came from another node.
+     */
+    public void addListener(Consumer<AccountChange> listener) {
+        listeners.add(listener);
+    }
+
+    private void onChange(AccountChange change) {
+        if (nodeId.equals(change.getOriginNodeId())) {
+            return;
+        }
+        for (Consumer<AccountChange> listener : listeners) {
+            listener.accept(change);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.cache;
+
+/**
+ * A change to a message, published by the node that made it so other nodes can drop their local copies.
+ */
+public class CacheInvalidation {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Type type;
+    private final int messageId;
+    private final Integer postedBy;
+    private final String originNodeId;
+    private final long publishedAtMicros;
+
+    public CacheInvalidation(Type type, int messageId, Integer postedBy, String originNodeId,
+            long publishedAtMicros) {
+        this.type = type;
+        this.messageId = messageId;
+        this.postedBy = postedBy;
+        this.originNodeId = originNodeId;
+        this.publishedAtMicros = publishedAtMicros;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getMessageId() {
+        return messageId;
+    }
+
+    public Integer getPostedBy() {
+        return postedBy;
+    }
+
+    public String getOriginNodeId() {
+        return originNodeId;
+    }
+
+    /**
+     * @return the wall-clock time of publication in microseconds since the epoch.
+     */
+    public long getPublishedAtMicros() {
+        return publishedAtMicros;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheInvalidation{" +
+                "type=" + type +
+                ", messageId=" + messageId +
+                ", postedBy=" + postedBy +
+                ", originNodeId='" + originNodeId + '\'' +
+                ", publishedAtMicros=" + publishedAtMicros +
+                '}';
+    }
+}
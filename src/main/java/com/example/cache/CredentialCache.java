@@ -0,0 +1,155 @@
+package com.example.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Short-lived cache of verified logins and of usernames known not to exist.
+ *
+ * A verified entry keeps the account id and a salted SHA-256 digest of the password that was checked against
+ * the database, never the password itself. A later login with the same username and password is answered
+ * from memory. Unknown usernames are cached separately, with their own bound, so a flood of made-up names
+ * cannot grow memory. AccountService evicts a username whenever that account changes.
+ */
+@Component
+public class CredentialCache {
+
+    private final ConcurrentHashMap<String, Verified> verified = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> unknown = new ConcurrentHashMap<>();
+    // bumped inside the eviction's compute on the unknown map, so a lookup that raced with a registration is
+    // not cached
+    private final AtomicLong evictions = new AtomicLong();
+    private final byte[] salt = new byte[16];
+    private final long ttlMillis;
+    private final int maxVerified;
+    private final int maxUnknown;
+
+    public CredentialCache(@Value("${app.cache.credentials.ttl-millis:30000}") long ttlMillis,
+            @Value("${app.cache.credentials.max-verified:10000}") int maxVerified,
+            @Value("${app.cache.credentials.max-unknown:1000}") int maxUnknown) {
+        this.ttlMillis = ttlMillis;
+        this.maxVerified = maxVerified;
+        this.maxUnknown = maxUnknown;
+        new SecureRandom().nextBytes(salt);
+    }
+
+    /**
+     * @param username the username.
+     * @param password the password supplied by the client.
+     * @return the account id if these credentials were verified recently, otherwise null.
+     */
+    public Integer getVerifiedAccountId(String username, String password) {
+        Verified entry = verified.get(username);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            verified.remove(username, entry);
+            return null;
+        }
+        return MessageDigest.isEqual(entry.digest, digest(password)) ? entry.accountId : null;
+    }
+
+    /**
+     * Remember credentials that were just verified against the database.
+     *
+     * @param username the username.
+     * @param password the verified password.
+     * @param accountId the id of the account.
+     */
+    public void putVerified(String username, String password, Integer accountId) {
+        long now = System.currentTimeMillis();
+        if (verified.size() >= maxVerified) {
+            verified.values().removeIf(entry -> entry.expiresAt < now);
+        }
+        if (verified.size() < maxVerified) {
+            verified.put(username, new Verified(accountId, digest(password), now + ttlMillis));
+        }
+    }
+
+    /**
+     * @param username the username.
+     * @return true if the username was recently looked up and did not exist.
+     */
+    public boolean isKnownUnknown(String username) {
+        Long expiresAt = unknown.get(username);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (expiresAt < System.currentTimeMillis()) {
+            unknown.remove(username, expiresAt);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return a token to take before a database lookup and hand to putUnknown afterwards.
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Remember that no account has this username.
+     *
+     * @param username the username.
+     * @param evictionCountBeforeLookup the value of getEvictionCount() taken before the lookup.
+     */
+    public void putUnknown(String username, long evictionCountBeforeLookup) {
+        if (evictions.get() != evictionCountBeforeLookup) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (unknown.size() >= maxUnknown) {
+            unknown.values().removeIf(expiresAt -> expiresAt < now);
+        }
+        if (unknown.size() < maxUnknown) {
+            // compared again in the same compute that evict() bumps the count in, so the two cannot interleave
+            unknown.compute(username, (key, expiresAt) ->
+                    evictions.get() == evictionCountBeforeLookup ? Long.valueOf(now + ttlMillis) : expiresAt);
+        }
+    }
+
+    /**
+     * Forget everything cached about a username, after its account was created or changed.
+     *
+     * @param username the username.
+     */
+    public void evict(String username) {
+        unknown.compute(username, (key, expiresAt) -> {
+            evictions.incrementAndGet();
+            return null;
+        });
+        verified.remove(username);
+    }
+
+    private byte[] digest(String password) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            sha256.update(salt);
+            return sha256.digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static class Verified {
+        private final Integer accountId;
+        private final byte[] digest;
+        private final long expiresAt;
+
+        Verified(Integer accountId, byte[] digest, long expiresAt) {
+            this.accountId = accountId;
+            this.digest = digest;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.cache;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.entity.Message;
+import com.example.store.TextInterner;
+
+/**
+ * In-JVM RemoteMessageCache, standing in for a shared cache server.
+ *
+ * Entries expire after ttl-millis. Every entry records when it was last written, and a removed message
+ * leaves an empty entry behind for ttl-millis, so fill() can refuse a message loaded before the latest
+ * write. The fill token is the time the load started; a fill older than ttl-millis is refused too, since the
+ * entry that would prove it stale may have expired. Invalidations are delivered on one background
+ * thread, so subscribers see them asynchronously and in order, as they would from a real pub/sub channel.
+ * Tests can share one instance between several TwoLevelMessageCache nodes. Stored texts go through the
+ * TextInterner, so entries with the same text share one String.
+ */
+@Component
+public class EmbeddedRemoteMessageCache implements RemoteMessageCache {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddedRemoteMessageCache.class);
+
+    private final ConcurrentHashMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final List<Consumer<CacheInvalidation>> subscribers = new CopyOnWriteArrayList<>();
+    private final List<Consumer<AccountChange>> accountSubscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService delivery = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cache-invalidation");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final long ttlMillis;
+    private final TextInterner textInterner;
+
+    public EmbeddedRemoteMessageCache(long ttlMillis) {
+        this(ttlMillis, TextInterner.DISABLED);
+    }
+
+    @Autowired
+    public EmbeddedRemoteMessageCache(@Value("${app.cache.remote.ttl-millis:60000}") long ttlMillis,
+            TextInterner textInterner) {
+        this.ttlMillis = ttlMillis;
+        this.textInterner = textInterner;
+    }
+
+    @Override
+    public Message get(int messageId) {
+        Entry entry = entries.get(messageId);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            entries.remove(messageId, entry);
+            return null;
+        }
+        return entry.message == null ? null : copy(entry.message);
+    }
+
+    @Override
+    public long getFillToken() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public void fill(Message message, long fillToken) {
+        long now = System.currentTimeMillis();
+        if (now - fillToken >= ttlMillis) {
+            return;
+        }
+        Message stored = intern(message);
+        entries.compute(message.getMessageId(), (id, entry) ->
+                entry != null && entry.expiresAt >= now && entry.writtenAt >= fillToken ? entry
+                        : new Entry(stored, entry == null ? Long.MIN_VALUE : entry.writtenAt, now + ttlMillis));
+    }
+
+    @Override
+    public void put(Message message) {
+        long now = System.currentTimeMillis();
+        entries.put(message.getMessageId(), new Entry(intern(message), now, now + ttlMillis));
+    }
+
+    @Override
+    public void remove(int messageId) {
+        long now = System.currentTimeMillis();
+        entries.put(messageId, new Entry(null, now, now + ttlMillis));
+    }
+
+    @Override
+    public void publish(CacheInvalidation invalidation) {
+        delivery.execute(() -> {
+            for (Consumer<CacheInvalidation> subscriber : subscribers) {
+                try {
+                    subscriber.accept(invalidation);
+                } catch (RuntimeException e) {
+                    log.warn("Subscriber failed on {}", invalidation, e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidation> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    @Override
+    public void publish(AccountChange change) {
+        delivery.execute(() -> {
+            for (Consumer<AccountChange> subscriber : accountSubscribers) {
+                try {
+                    subscriber.accept(change);
+                } catch (RuntimeException e) {
+                    log.warn("Subscriber failed on {}", change, e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void subscribeToAccountChanges(Consumer<AccountChange> subscriber) {
+        accountSubscribers.add(subscriber);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        delivery.shutdown();
+    }
+
+    private Message intern(Message message) {
+        return new Message(message.getMessageId(), message.getPostedBy(),
+                textInterner.intern(message.getMessageId(), message.getMessageText()), message.getTimePostedEpoch());
+    }
+
+    private static Message copy(Message message) {
+        return new Message(message.getMessageId(), message.getPostedBy(), message.getMessageText(),
+                message.getTimePostedEpoch());
+    }
+
+    private static class Entry {
+        // null once the message was deleted
+        private final Message message;
+        private final long writtenAt;
+        private final long expiresAt;
+
+        private Entry(Message message, long writtenAt, long expiresAt) {
+            this.message = message;
+            this.writtenAt = writtenAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Cache of pre-serialized UTF-8 JSON for single messages, keyed by message id.
+ *
+ * The bytes are produced with the same ObjectMapper Spring MVC uses, so a cached body is identical to
+ * what Jackson would have written for the Message. Each entry carries a strong ETag derived from its bytes.
+ * MessageService evicts entries whenever a message is updated or deleted.
+ *
+ * Every id has a version (ids share one of 4096 striped counters), bumped by evict() in the same
+ * entries.compute that removes the entry. A load is inserted by a compute on the same key that first checks
+ * the version is still the one read before loading, so bytes loaded before a write can never be cached
+ * after the write's eviction. A shared stripe only costs a skipped insert.
+ *
+ * At max-entries the cache makes room with the CLOCK algorithm: a hit marks its entry referenced, and an
+ * insert sweeps the ring of slots, clearing marks, until it finds an unreferenced entry to replace.
+ */
+@Component
+public class MessageJsonCache {
+
+    private static final int VERSION_STRIPES = 4096;
+
+    private final ConcurrentHashMap<Integer, CachedJson> entries = new ConcurrentHashMap<>();
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+    private final ObjectMapper objectMapper;
+    // CLOCK ring: the key held by each slot, guarded by itself along with the hand
+    private final int[] ring;
+    private int hand;
+
+    @Autowired
+    public MessageJsonCache(ObjectMapper objectMapper,
+            @Value("${app.cache.message-json.max-entries:10000}") int maxEntries) {
+        this.objectMapper = objectMapper;
+        this.ring = new int[maxEntries];
+    }
+
+    /**
+     * Look up a cached entry without loading anything.
+     *
+     * @param messageId the id of the message.
+     * @return the cached entry, or null if the message is not cached.
+     */
+    public CachedJson getIfPresent(int messageId) {
+        return entries.get(messageId);
+    }
+
+    /**
+     * Return the cached entry for the message, serializing and caching the loaded message on a miss.
+     *
+     * @param messageId the id of the message.
+     * @param loader loads the message on a miss; may return null.
+     * @return the cached entry, or null if the message does not exist.
+     */
+    public CachedJson get(int messageId, IntFunction<Message> loader) {
+        CachedJson cached = entries.get(messageId);
+        if (cached != null) {
+            cached.referenced = true;
+            return cached;
+        }
+        int stripe = stripe(messageId);
+        long versionBeforeLoad = versions.get(stripe);
+        Message message = loader.apply(messageId);
+        if (message == null) {
+            return null;
+        }
+        return insert(messageId, serialize(message), stripe, versionBeforeLoad);
+    }
+
+    /**
+     * Evict the entry for a message that was updated or deleted.
+     *
+     * @param messageId the id of the message.
+     */
+    public void evict(int messageId) {
+        entries.compute(messageId, (key, existing) -> {
+            versions.incrementAndGet(stripe(key));
+            return null;
+        });
+    }
+
+    /**
+     * Evict every entry.
+     */
+    public void clear() {
+        for (int i = 0; i < VERSION_STRIPES; i++) {
+            versions.incrementAndGet(i);
+        }
+        entries.clear();
+    }
+
+    /**
+     * @return the number of cached entries.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    // cache a loaded entry unless its id was evicted since the load started
+    private CachedJson insert(int messageId, CachedJson loaded, int stripe, long versionBeforeLoad) {
+        if (ring.length == 0) {
+            return loaded;
+        }
+        synchronized (ring) {
+            CachedJson present = entries.get(messageId);
+            if (present != null) {
+                return present;
+            }
+            if (versions.get(stripe) != versionBeforeLoad) {
+                return loaded;
+            }
+            loaded.slot = freeSlot();
+            CachedJson stored = entries.compute(messageId, (key, existing) -> existing != null ? existing
+                    : versions.get(stripe) == versionBeforeLoad ? loaded : null);
+            if (stored == loaded) {
+                ring[loaded.slot] = messageId;
+            }
+            return stored != null ? stored : loaded;
+        }
+    }
+
+    // CLOCK sweep: a free slot, or the slot of the first entry not referenced since the hand last passed it
+    private int freeSlot() {
+        while (true) {
+            int slot = hand;
+            hand = hand + 1 == ring.length ? 0 : hand + 1;
+            int key = ring[slot];
+            CachedJson occupant = entries.get(key);
+            if (occupant == null || occupant.slot != slot) {
+                return slot;
+            }
+            if (occupant.referenced) {
+                occupant.referenced = false;
+                continue;
+            }
+            entries.remove(key, occupant);
+            return slot;
+        }
+    }
+
+    private static int stripe(int messageId) {
+        int h = messageId * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (VERSION_STRIPES - 1);
+    }
+
+    private CachedJson serialize(Message message) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(message);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize message " + message.getMessageId(), e);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        String eTag = "\"" + Integer.toHexString(message.getMessageId()) + "-"
+                + Long.toHexString(crc.getValue()) + "\"";
+        return new CachedJson(body, eTag);
+    }
+
+    /**
+     * The serialized JSON of one message and its strong ETag.
+     */
+    public static class CachedJson {
+        private final byte[] body;
+        private final String eTag;
+        // CLOCK bookkeeping, set before the entry is published
+        private int slot = -1;
+        private volatile boolean referenced;
+
+        public CachedJson(byte[] body, String eTag) {
+            this.body = body;
+            this.eTag = eTag;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        /**
+         * Check an If-None-Match header value against this entry's ETag.
+         *
+         * @param ifNoneMatch the header value, may be null.
+         * @return true if the client already holds this representation.
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                // If-None-Match uses weak comparison
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(eTag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
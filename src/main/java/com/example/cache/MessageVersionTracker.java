@@ -0,0 +1,113 @@
+package com.example.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Tracks how many times the message table has changed, globally and per posting account.
+ *
+ * MessageService bumps the versions on every create, update and delete. The list endpoints turn a version
+ * into a weak ETag and a Last-Modified time, so a polling client whose copy is current gets a 304 without
+ * the list query being run. Versions live in memory and restart at zero, so every ETag includes a per-boot
+ * id to keep tags from a previous run from matching.
+ *
+ * If-Modified-Since only has whole seconds, so a version's time is rounded up to the end of the second it
+ * was reached in. A client holding that time has then seen every change of the second, and a later change
+ * always gets a later time.
+ */
+@Component
+public class MessageVersionTracker {
+
+    private final String bootId = Long.toHexString(System.currentTimeMillis());
+    private final long startedAt = endOfSecond(System.currentTimeMillis());
+    private final ConcurrentHashMap<Integer, Version> accountVersions = new ConcurrentHashMap<>();
+    private volatile Version globalVersion = new Version(0, startedAt);
+
+    /**
+     * Record a change to a message posted by the given account.
+     *
+     * @param postedBy the account id of the poster, may be null.
+     */
+    public void bump(Integer postedBy) {
+        long now = endOfSecond(System.currentTimeMillis());
+        synchronized (this) {
+            globalVersion = globalVersion.next(now);
+        }
+        if (postedBy != null) {
+            accountVersions.compute(postedBy,
+                    (id, version) -> version == null ? new Version(1, now) : version.next(now));
+        }
+    }
+
+    /**
+     * @return the current version of the whole message table.
+     */
+    public Version getGlobalVersion() {
+        return globalVersion;
+    }
+
+    /**
+     * @param accountId the account id of the poster.
+     * @return the current version of the messages posted by the account.
+     */
+    public Version getAccountVersion(int accountId) {
+        Version version = accountVersions.get(accountId);
+        return version != null ? version : new Version(0, startedAt);
+    }
+
+    /**
+     * Build the weak ETag for the message list.
+     *
+     * @param version the global version.
+     * @return the ETag.
+     */
+    public String allMessagesETag(Version version) {
+        return "W/\"" + bootId + "-m" + version.getNumber() + "\"";
+    }
+
+    /**
+     * Build the weak ETag for one account's message list.
+     *
+     * @param accountId the account id of the poster.
+     * @param version the account version.
+     * @return the ETag.
+     */
+    public String accountMessagesETag(int accountId, Version version) {
+        return "W/\"" + bootId + "-a" + accountId + "-" + version.getNumber() + "\"";
+    }
+
+    // the first whole second after the given time, so a change at exactly 11.000 rounds up to 12.000
+    static long endOfSecond(long millis) {
+        return (Math.floorDiv(millis, 1000) + 1) * 1000;
+    }
+
+    /**
+     * An immutable version number together with the time it was reached, rounded up to a whole second.
+     */
+    public static class Version {
+        private final long number;
+        private final long lastModified;
+
+        public Version(long number, long lastModified) {
+            this.number = number;
+            this.lastModified = lastModified;
+        }
+
+        Version next(long now) {
+            return new Version(number + 1, Math.max(now, lastModified));
+        }
+
+        public long getNumber() {
+            return number;
+        }
+
+        /**
+         * @return the Last-Modified time to send, or -1 while its second is still running: a change later in
+         *     the same second would get the same time, so a client holding it could miss that change.
+         */
+        public long getLastModified() {
+            return lastModified <= System.currentTimeMillis() ? lastModified : -1;
+        }
+    }
+}
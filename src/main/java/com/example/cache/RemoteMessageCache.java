@@ -0,0 +1,76 @@
+package com.example.cache;
+
+import java.util.function.Consumer;
+
+import com.example.entity.Message;
+
+/**
+ * Cache tier shared by every node, plus the channel nodes use to tell each other about changes.
+ *
+ * EmbeddedRemoteMessageCache is an in-JVM stand-in; a deployment with several nodes plugs in a client for a
+ * shared store and pub/sub channel instead.
+ *
+ * Writers put the new value of a message, or remove a deleted one, after their change commits. Readers that
+ * loaded a message from the store only fill the cache through fill(), which refuses the message if it was
+ * written since the reader took its fill token, so a read racing with a write cannot put the old value
+ * back.
+ */
+public interface RemoteMessageCache {
+
+    /**
+     * @param messageId the message id.
+     * @return a copy of the cached message, or null if it is not cached.
+     */
+    Message get(int messageId);
+
+    /**
+     * @return a token to take before loading a message from the store and hand to fill() afterwards.
+     */
+    long getFillToken();
+
+    /**
+     * Cache a message loaded from the store, unless it was put or removed since the token was taken.
+     *
+     * @param message the loaded message; must have a messageId.
+     * @param fillToken the value of getFillToken() taken before the load.
+     */
+    void fill(Message message, long fillToken);
+
+    /**
+     * Cache the new value of a message that was just created or updated.
+     *
+     * @param message the message to cache; must have a messageId.
+     */
+    void put(Message message);
+
+    /**
+     * Drop a message that was just deleted, so that no fill from before the delete can cache it again.
+     *
+     * @param messageId the message id.
+     */
+    void remove(int messageId);
+
+    /**
+     * Send an invalidation to every subscriber, including those of the publishing node.
+     *
+     * @param invalidation the invalidation.
+     */
+    void publish(CacheInvalidation invalidation);
+
+    /**
+     * @param subscriber receives every published invalidation, in publication order.
+     */
+    void subscribe(Consumer<CacheInvalidation> subscriber);
+
+    /**
+     * Send an account change to every account change subscriber, including those of the publishing node.
+     *
+     * @param change the change.
+     */
+    void publish(AccountChange change);
+
+    /**
+     * @param subscriber receives every published account change, in publication order.
+     */
+    void subscribeToAccountChanges(Consumer<AccountChange> subscriber);
+}
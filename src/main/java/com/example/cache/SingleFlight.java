@@ -0,0 +1,172 @@
+package com.example.cache;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls for the same key into one execution.
+ *
+ * The first caller for a key runs the loader. Every caller that arrives while that call is still in
+ * flight waits for it and receives the same result (or the same exception) instead of running the loader
+ * again. Once the call completes the key is released, so the next caller starts a fresh execution.
+ * A writer calls forget() after its change commits, so nobody who arrives later joins a call that may have
+ * read the data from before the change.
+ *
+ * Per-key statistics are kept for at most maxTrackedKeys keys; calls for further keys are still coalesced
+ * but are not tracked individually.
+ *
+ * @param <K> the key type.
+ * @param <V> the result type.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<K, KeyStats> stats = new ConcurrentHashMap<>();
+    private final int maxTrackedKeys;
+
+    public SingleFlight(int maxTrackedKeys) {
+        this.maxTrackedKeys = maxTrackedKeys;
+    }
+
+    /**
+     * Run the loader for the key, or join the call already in flight for it.
+     *
+     * @param key the key identifying identical calls.
+     * @param loader produces the result.
+     * @return the result of the loader.
+     */
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+        KeyStats keyStats = statsFor(key);
+
+        if (existing != null) {
+            if (keyStats != null) {
+                keyStats.shared.increment();
+                keyStats.requests.increment();
+            }
+            return await(existing);
+        }
+
+        if (keyStats != null) {
+            keyStats.executions.increment();
+            keyStats.maxConcurrent.accumulate(keyStats.concurrent.incrementAndGet());
+            keyStats.requests.increment();
+        }
+        try {
+            V result = loader.get();
+            call.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+            if (keyStats != null) {
+                keyStats.concurrent.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Stop sharing the call in flight for the key. Callers already waiting for it still receive its result;
+     * the next caller starts a fresh execution.
+     *
+     * @param key the key.
+     */
+    public void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    /**
+     * @param key the key.
+     * @return the statistics for the key, or null if the key is not tracked.
+     */
+    public KeyStats getStats(K key) {
+        return stats.get(key);
+    }
+
+    /**
+     * @return a snapshot of the statistics of every tracked key.
+     */
+    public Map<K, KeyStats> getAllStats() {
+        return Collections.unmodifiableMap(new HashMap<>(stats));
+    }
+
+    /**
+     * @return the number of keys with a call currently in flight.
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private KeyStats statsFor(K key) {
+        KeyStats keyStats = stats.get(key);
+        if (keyStats == null && stats.size() < maxTrackedKeys) {
+            keyStats = stats.computeIfAbsent(key, k -> new KeyStats());
+        }
+        return keyStats;
+    }
+
+    private static <V> V await(CompletableFuture<V> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Counters for one key.
+     */
+    public static class KeyStats {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder shared = new LongAdder();
+        private final AtomicInteger concurrent = new AtomicInteger();
+        private final LongAccumulator maxConcurrent = new LongAccumulator(Math::max, 0);
+
+        /**
+         * @return total calls for the key.
+         */
+        public long getRequests() {
+            return requests.sum();
+        }
+
+        /**
+         * @return calls that actually ran the loader.
+         */
+        public long getExecutions() {
+            return executions.sum();
+        }
+
+        /**
+         * @return calls that joined an execution already in flight.
+         */
+        public long getShared() {
+            return shared.sum();
+        }
+
+        /**
+         * @return the most loader executions seen running at once for the key; 1 when coalescing works.
+         */
+        public long getMaxConcurrent() {
+            return maxConcurrent.get();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.cache;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.example.cache.CacheInvalidation.Type;
+import com.example.entity.Message;
+import com.example.store.MessageHotSet;
+
+/**
+ * Two-level cache for single messages: the node's MessageHotSet as the near tier, and a RemoteMessageCache
+ * shared by all nodes as the far tier.
+ *
+ * A lookup tries the near tier, then the remote tier, then the loader. Each tier that missed is filled on
+ * the way back, each only if no write to the message happened since the lookup began: a lookup that read
+ * the store just before a write commits must not cache the old value after the writer updated the tiers.
+ * Every create, update and delete on this node writes the new value (or the deletion) to both tiers and
+ * publishes a CacheInvalidation. When another node's invalidation arrives, the near copy is dropped and
+ * the listener is told, so MessageService can evict whatever else it derived from the message.
+ *
+ * Hit counts per tier and the lag between publishing and receiving an invalidation are kept for
+ * GET /diagnostics/caches.
+ */
+@Component
+public class TwoLevelMessageCache {
+
+    private final MessageHotSet near;
+    private final RemoteMessageCache remote;
+    private final String nodeId = UUID.randomUUID().toString();
+    private volatile Consumer<CacheInvalidation> invalidationListener = invalidation -> { };
+
+    private final LongAdder nearHits = new LongAdder();
+    private final LongAdder remoteHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder totalLagMicros = new LongAdder();
+    private final AtomicLong maxLagMicros = new AtomicLong();
+
+    @Autowired
+    public TwoLevelMessageCache(MessageHotSet near, RemoteMessageCache remote) {
+        this.near = near;
+        this.remote = remote;
+        remote.subscribe(this::onInvalidation);
+    }
+
+    /**
+     * @param messageId the message id.
+     * @return the message from the near tier, or null if it is not there.
+     */
+    public Message getLocal(int messageId) {
+        Message message = near.get(messageId);
+        if (message != null) {
+            nearHits.increment();
+        }
+        return message;
+    }
+
+    /**
+     * Load a message that missed the near tier, from the remote tier or else the loader, and fill both tiers.
+     *
+     * @param messageId the message id.
+     * @param loader loads the message from the store; may return null.
+     * @return the message, or null if it does not exist.
+     */
+    public Message load(int messageId, IntFunction<Message> loader) {
+        long versionBeforeLoad = near.getVersion();
+        long fillToken = remote.getFillToken();
+        Message message = remote.get(messageId);
+        if (message != null) {
+            remoteHits.increment();
+        } else {
+            misses.increment();
+            message = loader.apply(messageId);
+            if (message == null) {
+                return null;
+            }
+            remote.fill(message, fillToken);
+        }
+        near.putIfUnchanged(message, versionBeforeLoad);
+        return message;
+    }
+
+    public void onCreated(Message message) {
+        near.put(message);
+        publish(Type.CREATED, message);
+    }
+
+    public void onUpdated(Message message) {
+        near.put(message);
+        remote.put(message);
+        publish(Type.UPDATED, message);
+    }
+
+    public void onDeleted(Message message) {
+        near.remove(message.getMessageId());
+        remote.remove(message.getMessageId());
+        publish(Type.DELETED, message);
+    }
+
+    /**
+     * @param listener told about every invalidation that came from another node, after the near copy was
+     *     dropped.
+     */
+    public void setInvalidationListener(Consumer<CacheInvalidation> listener) {
+        this.invalidationListener = listener;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * @return hit counts per tier, the overall hit ratio, and invalidation counts and lag.
+     */
+    public Map<String, Object> getStats() {
+        long nearHitCount = nearHits.sum();
+        long remoteHitCount = remoteHits.sum();
+        long missCount = misses.sum();
+        long lookups = nearHitCount + remoteHitCount + missCount;
+        long receivedCount = received.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("nodeId", nodeId);
+        stats.put("nearHits", nearHitCount);
+        stats.put("remoteHits", remoteHitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", lookups == 0 ? 0.0 : (double) (nearHitCount + remoteHitCount) / lookups);
+        stats.put("invalidationsPublished", published.sum());
+        stats.put("invalidationsReceived", receivedCount);
+        stats.put("invalidationLagMicrosAvg", receivedCount == 0 ? 0 : totalLagMicros.sum() / receivedCount);
+        stats.put("invalidationLagMicrosMax", maxLagMicros.get());
+        return stats;
+    }
+
+    private void publish(Type type, Message message) {
+        published.increment();
+        remote.publish(new CacheInvalidation(type, message.getMessageId(), message.getPostedBy(), nodeId,
+                nowMicros()));
+    }
+
+    private void onInvalidation(CacheInvalidation invalidation) {
+        if (nodeId.equals(invalidation.getOriginNodeId())) {
+            return;
+        }
+        long lag = Math.max(0, nowMicros() - invalidation.getPublishedAtMicros());
+        received.increment();
+        totalLagMicros.add(lag);
+        maxLagMicros.accumulateAndGet(lag, Math::max);
+        if (invalidation.getType() != Type.CREATED) {
+            near.remove(invalidation.getMessageId());
+        }
+        invalidationListener.accept(invalidation);
+    }
+
+    private static long nowMicros() {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.repository.AccountRepository;
+
+/**
+ * Bloom filter over every registered username.
+ *
+ * mightContain() returning false means no account has the username, so AccountService can skip the
+ * database for fresh registrations and for logins with made-up names. A true answer may be a false positive
+ * and must be confirmed with a query. Bits are set with compare-and-set on an AtomicLongArray, so
+ * registrations add names without locking.
+ *
+ * The filter is filled from AccountRepository once the application is ready. Until then it answers true
+ * for every name, which only costs the usual query.
+ *
+ * AccountService adds the usernames registered on this node, and those registered on other nodes as they
+ * arrive through the AccountChangeChannel.
+ */
+@Component
+public class UsernameBloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final AccountRepository accountRepository;
+    private volatile boolean ready;
+
+    @Autowired
+    public UsernameBloomFilter(AccountRepository accountRepository,
+            @Value("${app.cache.username-filter.expected-usernames:1000000}") long expectedUsernames,
+            @Value("${app.cache.username-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.accountRepository = accountRepository;
+        long optimalBits = (long) Math.ceil(-expectedUsernames * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.max(1, (optimalBits + 63) / 64);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = words * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedUsernames * Math.log(2)));
+    }
+
+    /**
+     * Fill the filter with the usernames already in the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        try (Stream<String> usernames = accountRepository.streamAllUsernames()) {
+            usernames.forEach(this::add);
+        }
+        ready = true;
+    }
+
+    /**
+     * Record a username. Call this for every account that is registered.
+     *
+     * @param username the username.
+     */
+    public void add(String username) {
+        long hash = hash(username);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = bits.get(word);
+            while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                current = bits.get(word);
+            }
+        }
+    }
+
+    /**
+     * @param username the username.
+     * @return false if no account has the username, true if one might.
+     */
+    public boolean mightContain(String username) {
+        if (!ready) {
+            return true;
+        }
+        long hash = hash(username);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 64-bit FNV-1a over the UTF-8 bytes, split into two 32-bit halves for double hashing
+    private static long hash(String username) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : username.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.concurrent;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.example.exception.ServiceOverloadedException;
+
+/**
+ * One bounded executor per Workload.
+ *
+ * Each executor has a fixed number of threads, a bounded queue and a timeout. A task that finds the queue
+ * full, or that does not finish within the timeout, fails with ServiceOverloadedException (a 503) instead
+ * of waiting. A timed-out task is not interrupted; only its response is abandoned.
+ *
+ * A timeout of 0 means none. WRITE has none by default: an abandoned write still commits, so a 503 inviting
+ * the client to try again would post the message twice. A full queue is still refused, since the write
+ * never started.
+ *
+ * If the context has a TaskDecorator, every task is decorated with it, so state bound to the submitting
+ * request thread (such as the StatementInspector's counts) follows the task onto the executor thread.
+ */
+@Component
+public class BulkheadExecutors {
+
+    private final Map<Workload, Bulkhead> bulkheads = new EnumMap<>(Workload.class);
+    private final TaskDecorator taskDecorator;
+
+    @Autowired
+    public BulkheadExecutors(BulkheadProperties properties, ObjectProvider<TaskDecorator> taskDecorator) {
+        this.taskDecorator = taskDecorator.getIfUnique(() -> runnable -> runnable);
+        for (Workload workload : Workload.values()) {
+            bulkheads.put(workload, new Bulkhead(workload, properties.forWorkload(workload)));
+        }
+    }
+
+    /**
+     * Run a task on the executor of its workload.
+     *
+     * @param workload the kind of work.
+     * @param task the work to run.
+     * @return a future completed with the task's result, or failed with the task's exception, or with
+     *         ServiceOverloadedException if the executor is saturated or the task timed out.
+     */
+    public <T> CompletableFuture<T> submit(Workload workload, Supplier<T> task) {
+        Bulkhead bulkhead = bulkheads.get(workload);
+        CompletableFuture<T> running;
+        try {
+            running = CompletableFuture.supplyAsync(task,
+                    command -> bulkhead.executor.execute(taskDecorator.decorate(command)));
+        } catch (RejectedExecutionException e) {
+            bulkhead.rejected.increment();
+            return CompletableFuture.failedFuture(new ServiceOverloadedException("Server is busy. Try again later."));
+        }
+        if (bulkhead.timeoutMillis <= 0) {
+            return running;
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        running.orTimeout(bulkhead.timeoutMillis, TimeUnit.MILLISECONDS).whenComplete((value, ex) -> {
+            if (ex == null) {
+                result.complete(value);
+                return;
+            }
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            if (cause instanceof TimeoutException) {
+                bulkhead.timedOut.increment();
+                result.completeExceptionally(new ServiceOverloadedException("Request timed out. Try again later."));
+            } else {
+                result.completeExceptionally(cause);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return saturation metrics of every executor, keyed by workload name.
+     */
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        for (Bulkhead bulkhead : bulkheads.values()) {
+            ThreadPoolExecutor executor = bulkhead.executor;
+            Map<String, Object> pool = new LinkedHashMap<>();
+            pool.put("threads", executor.getMaximumPoolSize());
+            pool.put("active", executor.getActiveCount());
+            pool.put("queued", executor.getQueue().size());
+            pool.put("queueCapacity", bulkhead.queueCapacity);
+            pool.put("completed", executor.getCompletedTaskCount());
+            pool.put("rejected", bulkhead.rejected.sum());
+            pool.put("timedOut", bulkhead.timedOut.sum());
+            stats.put(bulkhead.workload.name(), pool);
+        }
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Bulkhead bulkhead : bulkheads.values()) {
+            bulkhead.executor.shutdown();
+        }
+    }
+
+    private static class Bulkhead {
+        private final Workload workload;
+        private final ThreadPoolExecutor executor;
+        private final int queueCapacity;
+        private final long timeoutMillis;
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder timedOut = new LongAdder();
+
+        Bulkhead(Workload workload, BulkheadProperties.Pool pool) {
+            this.workload = workload;
+            this.queueCapacity = pool.getQueueCapacity();
+            this.timeoutMillis = pool.getTimeoutMillis();
+            CustomizableThreadFactory threadFactory =
+                    new CustomizableThreadFactory(workload.name().toLowerCase().replace('_', '-') + "-");
+            threadFactory.setDaemon(true);
+            this.executor = new ThreadPoolExecutor(pool.getThreads(), pool.getThreads(), 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(pool.getQueueCapacity()), threadFactory,
+                    new ThreadPoolExecutor.AbortPolicy());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.concurrent;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Thread, queue and timeout settings of each bulkhead executor, bound from the app.bulkhead.* properties.
+ */
+@ConfigurationProperties(prefix = "app.bulkhead")
+public class BulkheadProperties {
+
+    private Pool write = new Pool(16, 200, 0);
+    private Pool pointRead = new Pool(16, 500, 1000);
+    private Pool listRead = new Pool(8, 100, 5000);
+    private Pool auth = new Pool(8, 200, 1000);
+
+    public Pool getWrite() {
+        return write;
+    }
+
+    public void setWrite(Pool write) {
+        this.write = write;
+    }
+
+    public Pool getPointRead() {
+        return pointRead;
+    }
+
+    public void setPointRead(Pool pointRead) {
+        this.pointRead = pointRead;
+    }
+
+    public Pool getListRead() {
+        return listRead;
+    }
+
+    public void setListRead(Pool listRead) {
+        this.listRead = listRead;
+    }
+
+    public Pool getAuth() {
+        return auth;
+    }
+
+    public void setAuth(Pool auth) {
+        this.auth = auth;
+    }
+
+    /**
+     * @param workload the workload.
+     * @return the settings of the executor for the workload.
+     */
+    public Pool forWorkload(Workload workload) {
+        switch (workload) {
+            case WRITE:
+                return write;
+            case POINT_READ:
+                return pointRead;
+            case LIST_READ:
+                return listRead;
+            default:
+                return auth;
+        }
+    }
+
+    /**
+     * Size of one executor: its threads, how many tasks may wait for a thread, and how long a request may
+     * take before it is answered with a 503 (0 for no limit).
+     */
+    public static class Pool {
+        private int threads;
+        private int queueCapacity;
+        private long timeoutMillis;
+
+        public Pool() {
+        }
+
+        public Pool(int threads, int queueCapacity, long timeoutMillis) {
+            this.threads = threads;
+            this.queueCapacity = queueCapacity;
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public long getTimeoutMillis() {
+            return timeoutMillis;
+        }
+
+        public void setTimeoutMillis(long timeoutMillis) {
+            this.timeoutMillis = timeoutMillis;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.concurrent;
+
+/**
+ * The kinds of work the controller hands to separate bulkhead executors, so that a slow kind of request
+ * cannot use up the threads of another.
+ */
+public enum Workload {
+    /** Registering accounts and creating, updating or deleting messages. */
+    WRITE,
+    /** Single message lookups. */
+    POINT_READ,
+    /** Message lists and timelines. */
+    LIST_READ,
+    /** Logins and username checks. */
+    AUTH
+}
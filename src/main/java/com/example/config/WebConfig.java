@@ -0,0 +1,35 @@
+package com.example.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.example.concurrent.BulkheadProperties;
+import com.example.jdbc.StatementInspector;
+import com.example.ratelimit.RateLimitInterceptor;
+import com.example.ratelimit.RateLimitProperties;
+
+/**
+ * Spring MVC configuration for the controller endpoints.
+ */
+@Configuration
+@EnableConfigurationProperties({RateLimitProperties.class, BulkheadProperties.class})
+public class WebConfig implements WebMvcConfigurer {
+
+    private RateLimitInterceptor rateLimitInterceptor;
+    private StatementInspector statementInspector;
+
+    @Autowired
+    public WebConfig(RateLimitInterceptor rateLimitInterceptor, StatementInspector statementInspector) {
+        this.rateLimitInterceptor = rateLimitInterceptor;
+        this.statementInspector = statementInspector;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(statementInspector);
+        registry.addInterceptor(rateLimitInterceptor);
+    }
+}
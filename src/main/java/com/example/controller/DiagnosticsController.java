@@ -0,0 +1,139 @@
+package com.example.controller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.cache.SingleFlight.KeyStats;
+import com.example.cache.TwoLevelMessageCache;
+import com.example.concurrent.BulkheadExecutors;
+import com.example.jdbc.DatabaseDiagnostics;
+import com.example.jdbc.StatementInspector;
+import com.example.outbox.OutboxRelay;
+import com.example.service.MessageService;
+import com.example.store.PostedByIndex;
+import com.example.store.TextCodec;
+import com.example.store.TextInterner;
+
+/**
+ *  Endpoints:
+ * 
+ *  GET localhost:8080/diagnostics/executors: saturation metrics of the bulkhead executors used by the 
+ *  SocialMediaController, keyed by workload (threads, active, queued, completed, rejected, timedOut).
+ *
+ *  GET localhost:8080/diagnostics/indexes: state of the in-memory postedBy index (loaded, accounts, 
+ *  messageIds).
+ *
+ *  GET localhost:8080/diagnostics/reads: coalescing of concurrent account message reads, keyed by account
+ *  id (requests, executions, shared, maxConcurrent).
+ *
+ *  GET localhost:8080/diagnostics/caches: hits per tier, hit ratio, and invalidation counts and lag of the
+ *  two-level message cache, and under "textDedup" the lookups, shared texts, duplicate ratio and estimated 
+ *  bytes saved of the text interner. Under "textCodec": texts compressed and skipped, bytes before and after, 
+ *  and decompression time.
+ *
+ *  GET localhost:8080/diagnostics/outbox: sink, pending and published events, failures and publishing lag of
+ *  the outbox relay.
+ *
+ *  GET localhost:8080/diagnostics/database: connection pool utilization, connection acquire and usage 
+ *  histograms, statement cache counts, statement execution histogram and slow query samples.
+ *
+ *  GET localhost:8080/diagnostics/statements: SQL statements and rows per request, keyed by handler (requests,
+ *  flagged, maxStatements, maxRows and the counts of the latest request). Empty unless the statement 
+ *  inspector is enabled, as in the dev and staging profiles.
+ */
+@RestController
+public class DiagnosticsController {
+
+    private BulkheadExecutors bulkheadExecutors;
+    private MessageService messageService;
+    private TwoLevelMessageCache messageCache;
+    private OutboxRelay outboxRelay;
+    private DatabaseDiagnostics databaseDiagnostics;
+    private StatementInspector statementInspector;
+    private TextInterner textInterner;
+    private TextCodec textCodec;
+
+    @Autowired
+    public DiagnosticsController(BulkheadExecutors bulkheadExecutors, MessageService messageService,
+            TwoLevelMessageCache messageCache, OutboxRelay outboxRelay, DatabaseDiagnostics databaseDiagnostics,
+            StatementInspector statementInspector, TextInterner textInterner, TextCodec textCodec) {
+        this.bulkheadExecutors = bulkheadExecutors;
+        this.messageService = messageService;
+        this.messageCache = messageCache;
+        this.outboxRelay = outboxRelay;
+        this.databaseDiagnostics = databaseDiagnostics;
+        this.statementInspector = statementInspector;
+        this.textInterner = textInterner;
+        this.textCodec = textCodec;
+    }
+
+    /**
+     * Handler to retrieve the executor saturation metrics. The response status is always 200.
+     */
+    @GetMapping("diagnostics/executors")
+    public ResponseEntity<Map<String, Map<String, Object>>> getExecutorStats() {
+        return ResponseEntity.ok(bulkheadExecutors.getStats());
+    }
+
+    /**
+     * Handler to retrieve the state of the postedBy index. The response status is always 200.
+     */
+    @GetMapping("diagnostics/indexes")
+    public ResponseEntity<Map<String, Object>> getIndexStats() {
+        PostedByIndex postedByIndex = messageService.getPostedByIndex();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("loaded", postedByIndex.isLoaded());
+        stats.put("accounts", postedByIndex.getAccountCount());
+        stats.put("messageIds", postedByIndex.getMessageCount());
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Handler to retrieve the per-account statistics of coalesced message reads. The response status is
+     * always 200.
+     */
+    @GetMapping("diagnostics/reads")
+    public ResponseEntity<Map<Integer, KeyStats>> getReadStats() {
+        return ResponseEntity.ok(messageService.getAccountMessagesReadStats());
+    }
+
+    /**
+     * Handler to retrieve the two-level message cache metrics. The response status is always 200.
+     */
+    @GetMapping("diagnostics/caches")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(messageCache.getStats());
+        stats.put("textDedup", textInterner.getStats());
+        stats.put("textCodec", textCodec.getStats());
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Handler to retrieve the outbox relay metrics. The response status is always 200.
+     */
+    @GetMapping("diagnostics/outbox")
+    public ResponseEntity<Map<String, Object>> getOutboxStats() {
+        return ResponseEntity.ok(outboxRelay.getStats());
+    }
+
+    /**
+     * Handler to retrieve the connection pool and query metrics. The response status is always 200.
+     */
+    @GetMapping("diagnostics/database")
+    public ResponseEntity<Map<String, Object>> getDatabaseStats() {
+        return ResponseEntity.ok(databaseDiagnostics.getStats());
+    }
+
+    /**
+     * Handler to retrieve the per-request statement counts. The response status is always 200.
+     */
+    @GetMapping("diagnostics/statements")
+    public ResponseEntity<Map<String, Map<String, Object>>> getStatementStats() {
+        return ResponseEntity.ok(statementInspector.getStats());
+    }
+}
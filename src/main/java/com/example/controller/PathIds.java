@@ -0,0 +1,55 @@
+package com.example.controller;
+
+/**
+ * Parses numeric ids from path variables without allocating or throwing.
+ *
+ * Accepts what Integer.parseInt accepts for decimal input: an optional sign followed by digits, within the
+ * int range. Anything else, including a value that overflows, is reported as INVALID instead of a
+ * NumberFormatException, so a request with a bad id costs no stack trace.
+ */
+public final class PathIds {
+
+    /** Returned for input that is not an int; outside the int range, so it cannot be mistaken for an id. */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private PathIds() {
+    }
+
+    /**
+     * @param value the path variable.
+     * @return the id, or INVALID.
+     */
+    public static long parse(String value) {
+        int length = value == null ? 0 : value.length();
+        if (length == 0) {
+            return INVALID;
+        }
+        int i = 0;
+        boolean negative = false;
+        char first = value.charAt(0);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+            if (length == 1) {
+                return INVALID;
+            }
+        }
+        // more than 10 digits (ignoring leading zeros) cannot fit, and stops the long from overflowing
+        while (i < length - 1 && value.charAt(i) == '0') {
+            i++;
+        }
+        if (length - i > 10) {
+            return INVALID;
+        }
+        long result = 0;
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return INVALID;
+            }
+            result = result * 10 + (c - '0');
+        }
+        result = negative ? -result : result;
+        return result < Integer.MIN_VALUE || result > Integer.MAX_VALUE ? INVALID : result;
+    }
+}
@@ -1,9 +1,15 @@
 package com.example.controller;
 
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,13 +17,24 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.example.cache.MessageJsonCache.CachedJson;
+import com.example.cache.MessageVersionTracker;
+import com.example.cache.MessageVersionTracker.Version;
+import com.example.concurrent.BulkheadExecutors;
+import com.example.concurrent.Workload;
 import com.example.entity.Account;
+import com.example.entity.Follow;
 import com.example.entity.Message;
 import com.example.exception.DuplicateAccountException;
 import com.example.exception.UnauthorizedUserException;
+import com.example.ratelimit.RateLimiter;
 import com.example.service.AccountService;
+import com.example.service.FeedService;
 import com.example.service.MessageService;
 
 /**
@@ -30,6 +47,9 @@ import com.example.service.MessageService;
  *  of an Account, not containing an account_id because it is automatically generated. In the future, 
  *  this action may generate a Session token to allow the user to securely use the site.
  * 
+ *  GET localhost:8080/accounts/available?username={username}: checks whether a username can still be 
+ *  registered. The response body is a JSON object with the username and an "available" flag.
+ * 
  *  POST localhost:8080/messages: post a new message.  The request body will contain a JSON 
  *  representation of a message, which should be persisted to the database, but will not contain a 
  *  message_id.
@@ -47,6 +67,20 @@ import com.example.service.MessageService;
  *  by a particular user, which is retrieved from the database. It is expected for the list to simply 
  *  be empty if there are no messages.
  * 
+ *  GET localhost:8080/accounts/{account_id}/stats: gets the number of messages posted by the account. The 
+ *  response body is a JSON object with the account_id and its message count, answered from in-memory 
+ *  counters without querying the database.
+ * 
+ *  POST localhost:8080/accounts/{account_id}/following/{followee_id}: makes one account follow another. The 
+ *  response body contains the JSON of the follow. 
+ * 
+ *  DELETE localhost:8080/accounts/{account_id}/following/{followee_id}: makes one account stop following 
+ *  another. The response body contains the number of follows removed, or is empty if there was none.
+ * 
+ *  GET localhost:8080/accounts/{account_id}/feed?limit={limit}&before={message_id}: gets the home feed of an 
+ *  account: the messages of the accounts it follows and its own, newest first. Pass the smallest message_id 
+ *  of a page as "before" to get the next page.
+ * 
  *  DELETE localhost:8080/messages/{message_id}: deletes a message given message id. The deletion of an 
  *  existing message should remove an existing message from the database. If the message existed, the 
  *  response body should contain the now-deleted message.
@@ -55,18 +89,47 @@ import com.example.service.MessageService;
  *  should contain a new message_text values to replace the message identified by message_id. The request 
  *  body can not be guaranteed to contain any other information.
  * 
+ *  Account and message responses are JSON by default. Clients may ask for CBOR (application/cbor) or 
+ *  Smile (application/x-jackson-smile) through the Accept header, and responses over 2 KB are gzip 
+ *  compressed when the client sends Accept-Encoding: gzip.
+ * 
+ *  Every endpoint is rate limited per client IP; login is also limited per username and message creation 
+ *  per posting account. A rate-limited request gets a 429 with a Retry-After header. When too many requests 
+ *  are in progress at once, new ones are shed with a 503.
+ * 
+ *  Handlers do their work asynchronously on one bounded executor per kind of work (writes, single message 
+ *  reads, list reads and authentication), so a slow list read cannot starve logins. A request whose executor 
+ *  is saturated, or which runs past its executor's timeout, gets a 503.
+ * 
  *  
  */
 @RestController
 public class SocialMediaController {
 
+    // built once: answering a bad or unknown id allocates no response, body or exception
+    private static final ResponseEntity<byte[]> NO_MESSAGE = ResponseEntity.ok().build();
+    private static final CompletableFuture<ResponseEntity<byte[]>> INVALID_MESSAGE_ID =
+            CompletableFuture.completedFuture(badRequest("Invalid message_id"));
+    private static final CompletableFuture<ResponseEntity<?>> INVALID_ACCOUNT_ID =
+            CompletableFuture.completedFuture(badRequest("Invalid account_id"));
+
     private AccountService accountService;
     private MessageService messageService;
+    private MessageVersionTracker messageVersionTracker;
+    private RateLimiter rateLimiter;
+    private BulkheadExecutors bulkheadExecutors;
+    private FeedService feedService;
 
     @Autowired
-    public SocialMediaController(AccountService accountService, MessageService messageService) {
+    public SocialMediaController(AccountService accountService, MessageService messageService,
+            MessageVersionTracker messageVersionTracker, RateLimiter rateLimiter,
+            BulkheadExecutors bulkheadExecutors, FeedService feedService) {
         this.accountService = accountService;
         this.messageService = messageService;
+        this.feedService = feedService;
+        this.messageVersionTracker = messageVersionTracker;
+        this.rateLimiter = rateLimiter;
+        this.bulkheadExecutors = bulkheadExecutors;
     }
 
     // Account Controllers:
@@ -78,19 +141,22 @@ public class SocialMediaController {
      * Account, including its account_id and return a status 200.
      * - If the registration is not successful due to a duplicate username, the response status should be 409. (Conflict)
      * - If the registration is not successful for some other reason, the response status should be 400. (Client error)
+     * A blank username or a password of 4 characters or less is rejected with a ValidationException before 
+     * the database is queried.
      * 
      * @throws Exception if there are any other issues registering the account.
      * @throws  DuplicateAccountException if the account already exists.
      */
     @PostMapping("register")
-    public ResponseEntity<Account> registerAccount(@RequestBody Account account) {
-        Account addedAccount = accountService.registerAccount(account);
+    public CompletableFuture<ResponseEntity<Account>> registerAccount(@RequestBody Account account) {
+        return bulkheadExecutors.submit(Workload.WRITE, () -> {
+            Account addedAccount = accountService.registerAccount(account);
 
-        if(addedAccount != null){
-            return ResponseEntity.ok(account);
-        }
-        throw new DuplicateAccountException("Account exists. Try again with different Username.");
-        
+            if(addedAccount != null){
+                return ResponseEntity.ok(account);
+            }
+            throw new DuplicateAccountException("Account exists. Try again with different Username.");
+        });
     }
 
 
@@ -100,20 +166,41 @@ public class SocialMediaController {
      * If all conditions are met in the Account Service class, the response body should contain a JSON of the 
      * account in the response body, including its account_id and return a status 200.
      * - If the login is not successful, the response status should be 401. (Unauthorized)
+     * - If there have been too many login attempts for the username, the response status should be 429.
      * 
      * @throws Exception if there are any other issues logging in the account.
      * @throws UnauthorizeUserException will be thrown if there is an issue with the username or password.
      */
     @PostMapping("login")
-    public ResponseEntity<Account> loginAccount(@RequestBody Account account) {
-        Account loginAccount = accountService.loginAccount(account);
-        
-        if (loginAccount != null) {
-            return ResponseEntity.ok(loginAccount);
-        } else {
-            throw new UnauthorizedUserException();
-        }
-        
+    public CompletableFuture<ResponseEntity<Account>> loginAccount(@RequestBody Account account) {
+        rateLimiter.checkLoginUsername(account.getUsername());
+        return bulkheadExecutors.submit(Workload.AUTH, () -> {
+            Account loginAccount = accountService.loginAccount(account);
+
+            if (loginAccount != null) {
+                return ResponseEntity.ok(loginAccount);
+            } else {
+                throw new UnauthorizedUserException();
+            }
+        });
+    }
+
+
+
+     /**
+     * Handler to check whether a username is available for registration.
+     * 
+     * The response body is a JSON object such as {"username":"user","available":true} and the response 
+     * status is always 200. Blank usernames are never available.
+     */
+    @GetMapping("accounts/available")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> isUsernameAvailable(@RequestParam String username) {
+        return bulkheadExecutors.submit(Workload.AUTH, () -> {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("username", username);
+            body.put("available", accountService.isUsernameAvailable(username));
+            return ResponseEntity.ok(body);
+        });
     }
 
 
@@ -126,17 +213,21 @@ public class SocialMediaController {
      * If all the conditions are met from the Message Service, the response body should contain a JSON of the 
      * Account, including its message_id and return a status 200.
      * - If the creation of the message is not successful, the response status should be 400. (Client error)
+     * - If the account has posted too many messages recently, the response status should be 429.
      * 
      * @throws Exception if there are any other issues creating message.
      */
     @PostMapping("messages")
-    public ResponseEntity<Message> createMessage(@RequestBody Message message) {
-        Message createdMessage = messageService.createMessage(message);
+    public CompletableFuture<ResponseEntity<Message>> createMessage(@RequestBody Message message) {
+        rateLimiter.checkCreateMessageAccount(message.getPostedBy());
+        return bulkheadExecutors.submit(Workload.WRITE, () -> {
+            Message createdMessage = messageService.createMessage(message);
 
-        if(createdMessage != null) {
-            return ResponseEntity.ok(createdMessage);
-        }
-        return ResponseEntity.badRequest().body(message);
+            if(createdMessage != null) {
+                return ResponseEntity.ok(createdMessage);
+            }
+            return ResponseEntity.badRequest().body(message);
+        });
     }
 
 
@@ -146,12 +237,22 @@ public class SocialMediaController {
      * It is expected for the list to simply be empty if there are no messages. 
      * The response status should always be 200, which is the default.
      * 
+     * The response carries a weak ETag and Last-Modified built from the global message version. If the 
+     * client's copy is still current the response status is 304 and the query is not run.
+     * 
      * @throws Exception if there are any other issues retrieving messages.
      */
     @GetMapping("messages")
-    public ResponseEntity<List<Message>> getAllMessages() {
-        List<Message> messages = messageService.getAllMessages();
-        return ResponseEntity.ok(messages);
+    public CompletableFuture<ResponseEntity<List<Message>>> getAllMessages(WebRequest request) {
+        // read the version before querying so a concurrent write can only make the tag look older
+        Version version = messageVersionTracker.getGlobalVersion();
+        if (request.checkNotModified(messageVersionTracker.allMessagesETag(version), version.getLastModified())) {
+            return CompletableFuture.completedFuture(notModified());
+        }
+        return bulkheadExecutors.submit(Workload.LIST_READ, () -> {
+            List<Message> messages = messageService.getAllMessages();
+            return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(messages);
+        });
     }
 
 
@@ -162,18 +263,35 @@ public class SocialMediaController {
      * It is expected for the response body to simply be empty if there is no such 
      * message. The response status should always be 200, which is the default.
      * 
+     * The body is written from the pre-serialized JSON cache and carries a strong ETag. If the If-None-Match 
+     * header matches, the response status is 304. A cached message is answered without querying the database.
+     * 
+     * - If the message_id is not a number, the response status should be 400. (Client error)
+     * 
      * @throws Exception if there are any other issues retrieving message.
      */
     @GetMapping("messages/{message_id}")
-    public ResponseEntity<Message> getMessageByID(@PathVariable String message_id) {
-        Message message = messageService.getMessageByID(Integer.parseInt(message_id));
-
-        if (message != null) {
-            return ResponseEntity.ok(message);
+    public CompletableFuture<ResponseEntity<byte[]>> getMessageByID(@PathVariable String message_id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        long parsedId = PathIds.parse(message_id);
+        if (parsedId == PathIds.INVALID) {
+            return INVALID_MESSAGE_ID;
         }
-        
-        return ResponseEntity.ok(null);
+        int messageId = (int) parsedId;
+        return bulkheadExecutors.submit(Workload.POINT_READ, () -> {
+            CachedJson cached = messageService.getMessageJsonByID(messageId);
 
+            if (cached == null) {
+                return NO_MESSAGE;
+            }
+            if (cached.matches(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(cached.getETag()).build();
+            }
+            return ResponseEntity.ok()
+                    .eTag(cached.getETag())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(cached.getBody());
+        });
     }
 
 
@@ -183,15 +301,105 @@ public class SocialMediaController {
      * It is expected for the list to simply be empty if there are no messages.
      * The response status should always be 200, which is the default
      * 
+     * The response carries a weak ETag and Last-Modified built from the account's message version. If the 
+     * client's copy is still current the response status is 304 and the query is not run.
+     * 
+     * - If the account_id is not a number, the response status should be 400. (Client error)
+     * 
      * @throws Exception if there are any other issues retrieving messages.
      */
     @GetMapping("accounts/{account_id}/messages")
-    public ResponseEntity<List<Message>> getMessagesByAccountID(@PathVariable String account_id) {
-        List<Message> messages = messageService.getMessagesByAccountID(Integer.parseInt(account_id));
-        if(messages != null) {
-            return ResponseEntity.status(HttpStatus.OK).body(messages);
-        } 
-        return ResponseEntity.ok(messages);
+    public CompletableFuture<ResponseEntity<?>> getMessagesByAccountID(@PathVariable String account_id,
+            WebRequest request) {
+        long parsedId = PathIds.parse(account_id);
+        if (parsedId == PathIds.INVALID) {
+            return INVALID_ACCOUNT_ID;
+        }
+        int accountId = (int) parsedId;
+        Version version = messageVersionTracker.getAccountVersion(accountId);
+        if (request.checkNotModified(messageVersionTracker.accountMessagesETag(accountId, version),
+                version.getLastModified())) {
+            return CompletableFuture.completedFuture(notModified());
+        }
+        return bulkheadExecutors.<ResponseEntity<?>>submit(Workload.LIST_READ, () -> {
+            List<Message> messages = messageService.getMessagesByAccountID(accountId);
+            if(messages != null) {
+                return ResponseEntity.status(HttpStatus.OK).varyBy(HttpHeaders.ACCEPT).body(messages);
+            } 
+            return ResponseEntity.ok(messages);
+        });
+    }
+
+
+     /**
+     * Handler to retrieve the message count of an account given the account id.
+     * 
+     * The response body is a JSON object such as {"accountId":9999,"messageCount":1}. Accounts that have not 
+     * posted have a count of 0. The response status should always be 200, which is the default.
+     * 
+     * @throws Exception if there are any other issues retrieving the count.
+     */
+    @GetMapping("accounts/{account_id}/stats")
+    public ResponseEntity<Map<String, Object>> getAccountStats(@PathVariable("account_id") int accountId) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("accountId", accountId);
+        body.put("messageCount", messageService.getMessageCountByAccountID(accountId));
+        return ResponseEntity.ok(body);
+    }
+
+
+     /**
+     * Handler to follow an account.
+     * 
+     * If both accounts exist, the response body should contain a JSON of the follow and the response status 
+     * should be 200. Following an account that is already followed returns the existing follow.
+     * - If either account does not exist or an account tries to follow itself, the response status should 
+     * be 400. (Client error)
+     */
+    @PostMapping("accounts/{account_id}/following/{followee_id}")
+    public CompletableFuture<ResponseEntity<Follow>> followAccount(@PathVariable("account_id") int accountId,
+            @PathVariable("followee_id") int followeeId) {
+        return bulkheadExecutors.submit(Workload.WRITE, () -> {
+            Follow follow = feedService.follow(accountId, followeeId);
+            if (follow != null) {
+                return ResponseEntity.ok(follow);
+            }
+            return ResponseEntity.badRequest().build();
+        });
+    }
+
+
+     /**
+     * Handler to unfollow an account.
+     * 
+     * The response status should always be 200. If a follow was removed the response body contains the 
+     * number of follows removed (1), otherwise it is empty.
+     */
+    @DeleteMapping("accounts/{account_id}/following/{followee_id}")
+    public CompletableFuture<ResponseEntity<?>> unfollowAccount(@PathVariable("account_id") int accountId,
+            @PathVariable("followee_id") int followeeId) {
+        return bulkheadExecutors.<ResponseEntity<?>>submit(Workload.WRITE, () -> {
+            int rowsAffected = feedService.unfollow(accountId, followeeId);
+            if (rowsAffected > 0) {
+                return ResponseEntity.ok(rowsAffected);
+            }
+            return ResponseEntity.ok().build();
+        });
+    }
+
+
+     /**
+     * Handler to retrieve a page of an account's home feed.
+     * 
+     * The response body should contain a JSON list of up to limit messages (default 20, at most 100), newest 
+     * first. It is expected for the list to simply be empty if there are no messages. The response status 
+     * should always be 200, which is the default.
+     */
+    @GetMapping("accounts/{account_id}/feed")
+    public CompletableFuture<ResponseEntity<List<Message>>> getFeed(@PathVariable("account_id") int accountId,
+            @RequestParam(defaultValue = "20") int limit, @RequestParam(required = false) Integer before) {
+        return bulkheadExecutors.submit(Workload.LIST_READ,
+                () -> ResponseEntity.ok(feedService.getFeed(accountId, before, limit)));
     }
 
 
@@ -208,16 +416,17 @@ public class SocialMediaController {
      * @throws Exception if there are any other issues deleting message.
      */
     @DeleteMapping("messages/{message_id}")
-    public ResponseEntity<?> deleteMessage(@PathVariable("message_id") Integer messageId) {
-        // rows affected from delete
-        int rowsAffected = messageService.deleteMessage(messageId);
-
-        if(rowsAffected > 0) { // loop
-            return ResponseEntity.ok(rowsAffected); // if rows were affected return status 200 and the number of rows in the body
-        } else {
-            return ResponseEntity.ok().build(); // else return status 200 and nothing in the body
-        }
-        
+    public CompletableFuture<ResponseEntity<?>> deleteMessage(@PathVariable("message_id") Integer messageId) {
+        return bulkheadExecutors.<ResponseEntity<?>>submit(Workload.WRITE, () -> {
+            // rows affected from delete
+            int rowsAffected = messageService.deleteMessage(messageId);
+
+            if(rowsAffected > 0) { // loop
+                return ResponseEntity.ok(rowsAffected); // if rows were affected return status 200 and the number of rows in the body
+            } else {
+                return ResponseEntity.ok().build(); // else return status 200 and nothing in the body
+            }
+        });
     }
 
 
@@ -234,13 +443,26 @@ public class SocialMediaController {
      */
 
     @PatchMapping("messages/{message_id}")
-    public ResponseEntity<?> updateMessage(@PathVariable("message_id") int messageId, @RequestBody Message message) {
-        int rowsAffected = messageService.updateMessage(messageId, message);
-        if (rowsAffected > 0) {
-            return ResponseEntity.ok(rowsAffected);
-        } else {
-            return ResponseEntity.badRequest().build();
-        }
+    public CompletableFuture<ResponseEntity<?>> updateMessage(@PathVariable("message_id") int messageId,
+            @RequestBody Message message) {
+        return bulkheadExecutors.<ResponseEntity<?>>submit(Workload.WRITE, () -> {
+            int rowsAffected = messageService.updateMessage(messageId, message);
+            if (rowsAffected > 0) {
+                return ResponseEntity.ok(rowsAffected);
+            } else {
+                return ResponseEntity.badRequest().build();
+            }
+        });
     }
 
+    // checkNotModified has already set the 304 with its ETag and Last-Modified; the list endpoints also
+    // answer CBOR and Smile, so caches must key the 304 by Accept just like the 200
+    private static <T> ResponseEntity<T> notModified() {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).varyBy(HttpHeaders.ACCEPT).build();
+    }
+
+    private static ResponseEntity<byte[]> badRequest(String reason) {
+        return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN)
+                .body(reason.getBytes(StandardCharsets.UTF_8));
+    }
 }
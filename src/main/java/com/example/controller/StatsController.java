@@ -0,0 +1,54 @@
+package com.example.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.service.MessageStatsService;
+import com.example.stats.AccountMessageStats;
+import com.example.stats.MessageStats;
+
+/**
+ *  Endpoints:
+ * 
+ *  GET localhost:8080/stats/messages: site-wide message statistics. The response body contains the total 
+ *  number of messages, the number of accounts that have posted, and the minimum, maximum, mean and 
+ *  histogram of message text lengths.
+ * 
+ *  GET localhost:8080/stats/messages/accounts: per-account message statistics. The response body contains 
+ *  a list with the message count, first and last post time and posting rate (posts per day) of every 
+ *  account that has posted.
+ * 
+ *  Both are answered from statistics kept up to date by the MessageService write paths, without scanning 
+ *  the message table.
+ */
+@RestController
+public class StatsController {
+
+    private MessageStatsService messageStatsService;
+
+    @Autowired
+    public StatsController(MessageStatsService messageStatsService) {
+        this.messageStatsService = messageStatsService;
+    }
+
+    /**
+     * Handler to retrieve the site-wide message statistics. The response status is always 200.
+     */
+    @GetMapping("stats/messages")
+    public ResponseEntity<MessageStats> getMessageStats() {
+        return ResponseEntity.ok(messageStatsService.getMessageStats());
+    }
+
+    /**
+     * Handler to retrieve the per-account message statistics. It is expected for the list to simply be 
+     * empty if there are no messages. The response status is always 200.
+     */
+    @GetMapping("stats/messages/accounts")
+    public ResponseEntity<List<AccountMessageStats>> getAccountMessageStats() {
+        return ResponseEntity.ok(messageStatsService.getAccountStats());
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.entity;
+
+import javax.persistence.*;
+
+/**
+ * This is a class that models one account following another.
+ */
+@Entity
+@Table(name="follow")
+public class Follow {
+    /**
+     * An id for this follow which will be automatically generated by the database.
+     */
+    @Column(name="followId")
+    @Id @GeneratedValue
+    private Integer followId;
+    /**
+     * The id of the account that follows.
+     */
+    @Column(name="followerId")
+    private Integer followerId;
+    /**
+     * The id of the account being followed.
+     */
+    @Column(name="followeeId")
+    private Integer followeeId;
+    /**
+     * A default, no-args constructor, as well as correctly formatted getters and setters, are needed for
+     * Jackson Objectmapper to work.
+     */
+    public Follow(){
+    }
+    /**
+     * When creating a new follow, the id can be generated by the database.
+     * @param followerId
+     * @param followeeId
+     */
+    public Follow(Integer followerId, Integer followeeId) {
+        this.followerId = followerId;
+        this.followeeId = followeeId;
+    }
+
+    public Integer getFollowId() {
+        return followId;
+    }
+
+    public void setFollowId(Integer followId) {
+        this.followId = followId;
+    }
+
+    public Integer getFollowerId() {
+        return followerId;
+    }
+
+    public void setFollowerId(Integer followerId) {
+        this.followerId = followerId;
+    }
+
+    public Integer getFolloweeId() {
+        return followeeId;
+    }
+
+    public void setFolloweeId(Integer followeeId) {
+        this.followeeId = followeeId;
+    }
+
+    @Override
+    public String toString() {
+        return "Follow{" +
+                "followId=" + followId +
+                ", followerId=" + followerId +
+                ", followeeId=" + followeeId +
+                '}';
+    }
+}
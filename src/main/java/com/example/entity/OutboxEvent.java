@@ -0,0 +1,125 @@
+package com.example.entity;
+
+import javax.persistence.*;
+
+/**
+ * This is a class that models a message lifecycle event waiting in the outbox to be relayed downstream.
+ */
+@Entity
+@Table(name="outbox")
+public class OutboxEvent {
+    /**
+     * An id for this event which will be automatically generated by the database. Events are relayed in id
+     * order. The id comes from the table's own identity column, so it does not consume ids of the other
+     * tables.
+     */
+    @Column(name="eventId")
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long eventId;
+    /**
+     * CREATED, UPDATED or DELETED.
+     */
+    @Column(name="eventType")
+    private String eventType;
+    /**
+     * The id of the message the event is about.
+     */
+    @Column(name="messageId")
+    private Integer messageId;
+    /**
+     * The id of the account that posted the message.
+     */
+    @Column(name="postedBy")
+    private Integer postedBy;
+    /**
+     * The JSON representation of the message after the change, or before it for a delete.
+     */
+    @Column(name="payload")
+    private String payload;
+    /**
+     * The time the event was written, in epoch milliseconds.
+     */
+    @Column(name="createdAt")
+    private Long createdAt;
+    /**
+     * A default, no-args constructor, as well as correctly formatted getters and setters, are needed for
+     * Jackson Objectmapper to work.
+     */
+    public OutboxEvent(){
+    }
+    /**
+     * When creating a new event, the id can be generated by the database.
+     * @param eventType
+     * @param messageId
+     * @param postedBy
+     * @param payload
+     * @param createdAt
+     */
+    public OutboxEvent(String eventType, Integer messageId, Integer postedBy, String payload, Long createdAt) {
+        this.eventType = eventType;
+        this.messageId = messageId;
+        this.postedBy = postedBy;
+        this.payload = payload;
+        this.createdAt = createdAt;
+    }
+
+    public Long getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(Long eventId) {
+        this.eventId = eventId;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public void setEventType(String eventType) {
+        this.eventType = eventType;
+    }
+
+    public Integer getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(Integer messageId) {
+        this.messageId = messageId;
+    }
+
+    public Integer getPostedBy() {
+        return postedBy;
+    }
+
+    public void setPostedBy(Integer postedBy) {
+        this.postedBy = postedBy;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public Long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "OutboxEvent{" +
+                "eventId=" + eventId +
+                ", eventType='" + eventType + '\'' +
+                ", messageId=" + messageId +
+                ", postedBy=" + postedBy +
+                ", payload='" + payload + '\'' +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
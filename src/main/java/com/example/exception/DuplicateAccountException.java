@@ -4,10 +4,13 @@ public class DuplicateAccountException extends RuntimeException{
 
     private String message;
 
-    public DuplicateAccountException() {}
+    public DuplicateAccountException() {
+        super(null, null, false, false);
+    }
 
     public DuplicateAccountException(String msg) {
-        super(msg);
+        // no stack trace: a taken username is an expected answer, not a fault
+        super(msg, null, false, false);
         this.message = msg;
     }
 
@@ -1,11 +1,16 @@
 package com.example.exception;
 
+import java.sql.SQLTransientConnectionException;
+
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import com.example.validation.ValidationException;
+
 @RestControllerAdvice
 public class ExceptionAndErrorController {
 
@@ -16,9 +21,20 @@ public class ExceptionAndErrorController {
                 .body(de.getMessage());
     }
 
+    @ExceptionHandler(ValidationException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ResponseEntity<String> handleValidation(ValidationException ve) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ve.getMessage());
+    }
+
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ResponseEntity<String> handleException(Exception re) {
+        if (isConnectionUnavailable(re)) {
+            // the pool had no free connection within connection-timeout: shed the request like a full bulkhead
+            return handleServiceOverloaded(new ServiceOverloadedException("Server is busy. Try again later."));
+        }
         return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                 .body(re.getMessage());
     }
@@ -29,5 +45,32 @@ public class ExceptionAndErrorController {
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                 .body(ue.getMessage());
     }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public ResponseEntity<String> handleTooManyRequests(TooManyRequestsException te) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(te.getRetryAfterSeconds()))
+                .body(te.getMessage());
+    }
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ResponseEntity<String> handleServiceOverloaded(ServiceOverloadedException se) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(se.getMessage());
+    }
+
+    // Hikari reports a connection-timeout as SQLTransientConnectionException, which Spring wraps in
+    // CannotCreateTransactionException or CannotGetJdbcConnectionException
+    private static boolean isConnectionUnavailable(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTransientConnectionException) {
+                return true;
+            }
+        }
+        return false;
+    }
     
 }
@@ -0,0 +1,9 @@
+package com.example.exception;
+
+public class ServiceOverloadedException extends RuntimeException{
+
+    public ServiceOverloadedException(String msg) {
+        // no stack trace: this is thrown for every shed request while the server is overloaded
+        super(msg, null, false, false);
+    }
+}
@@ -3,10 +3,13 @@ package com.example.exception;
 public class UnauthorizedUserException extends RuntimeException{
     private String message;
 
-    public UnauthorizedUserException(){}
+    public UnauthorizedUserException() {
+        super(null, null, false, false);
+    }
 
     public UnauthorizedUserException(String msg) {
-        super(msg);
+        // no stack trace: thrown for every wrong password, including credential stuffing traffic
+        super(msg, null, false, false);
         this.message = msg;
     }
 }
@@ -0,0 +1,140 @@
+package com.example.feed;
+
+import java.util.Arrays;
+
+/**
+ * Bounded ring buffer of message ids for one account's home feed, kept in ascending id order.
+ *
+ * Ids live in a single int[]; once the buffer is full the oldest id is overwritten. New messages almost
+ * always have the largest id so far and are appended in O(1). Reading a page binary-searches for its cursor
+ * and copies back from there, so it costs O(log capacity + page size) no matter how deep the cursor is.
+ */
+public class FeedBuffer {
+
+    private final int[] ids;
+    private int head;
+    private int size;
+
+    public FeedBuffer(int capacity) {
+        this.ids = new int[capacity];
+    }
+
+    /**
+     * Add a message id. Duplicates are ignored; an id older than everything in a full buffer is dropped.
+     *
+     * @param messageId the message id.
+     */
+    public synchronized void add(int messageId) {
+        if (size == 0 || messageId > newest()) {
+            append(messageId);
+            return;
+        }
+        // out of order: rare, only when writes commit in a different order than their ids were assigned
+        int[] sorted = toSortedArray();
+        if (Arrays.binarySearch(sorted, messageId) >= 0) {
+            return;
+        }
+        merge(new int[] {messageId});
+    }
+
+    /**
+     * Merge several message ids, e.g. the recent posts of a newly followed account.
+     *
+     * @param messageIds the ids, in any order.
+     */
+    public synchronized void merge(int[] messageIds) {
+        int[] combined = Arrays.copyOf(toSortedArray(), size + messageIds.length);
+        System.arraycopy(messageIds, 0, combined, size, messageIds.length);
+        Arrays.sort(combined);
+        head = 0;
+        size = 0;
+        // appending in ascending order to a full buffer overwrites the oldest, so only the newest ids remain
+        for (int i = 0; i < combined.length; i++) {
+            if (i == 0 || combined[i] != combined[i - 1]) {
+                append(combined[i]);
+            }
+        }
+    }
+
+    /**
+     * Remove a message id, e.g. of a deleted message.
+     *
+     * @param messageId the message id.
+     * @return true if the id was held.
+     */
+    public synchronized boolean remove(int messageId) {
+        int[] sorted = toSortedArray();
+        int index = Arrays.binarySearch(sorted, messageId);
+        if (index < 0) {
+            return false;
+        }
+        head = 0;
+        size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i != index) {
+                append(sorted[i]);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read the newest ids older than a cursor.
+     *
+     * @param beforeId only ids smaller than this are returned; use Integer.MAX_VALUE for the first page.
+     * @param limit the most ids to return.
+     * @return up to limit ids, newest first.
+     */
+    public synchronized int[] readNewest(int beforeId, int limit) {
+        int end = countBefore(beforeId);
+        int[] page = new int[Math.max(0, Math.min(limit, end))];
+        for (int i = 0; i < page.length; i++) {
+            page[i] = ids[(head + end - 1 - i) % ids.length];
+        }
+        return page;
+    }
+
+    /**
+     * @return the number of ids held.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private int newest() {
+        return ids[(head + size - 1) % ids.length];
+    }
+
+    // binary search over the logical positions: the number of ids smaller than beforeId
+    private int countBefore(int beforeId) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ids[(head + mid) % ids.length] < beforeId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void append(int messageId) {
+        if (size < ids.length) {
+            ids[(head + size) % ids.length] = messageId;
+            size++;
+        } else {
+            ids[head] = messageId;
+            head = (head + 1) % ids.length;
+        }
+    }
+
+    private int[] toSortedArray() {
+        int[] sorted = new int[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = ids[(head + i) % ids.length];
+        }
+        return sorted;
+    }
+}
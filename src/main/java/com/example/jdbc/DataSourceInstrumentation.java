@@ -0,0 +1,37 @@
+package com.example.jdbc;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Installs PoolMetrics on the HikariCP pool and wraps the DataSource in an InstrumentedDataSource.
+ *
+ * Runs after the spring.datasource.hikari properties have been bound and before the pool starts, which is
+ * on the first getConnection().
+ */
+@Component
+public class DataSourceInstrumentation implements BeanPostProcessor {
+
+    private final PoolMetrics poolMetrics;
+    private final QueryMetrics queryMetrics;
+
+    public DataSourceInstrumentation(PoolMetrics poolMetrics, QueryMetrics queryMetrics) {
+        this.poolMetrics = poolMetrics;
+        this.queryMetrics = queryMetrics;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof HikariDataSource) {
+            ((HikariDataSource) bean).setMetricsTrackerFactory(poolMetrics);
+        }
+        if (bean instanceof DataSource && !(bean instanceof InstrumentedDataSource)) {
+            return new InstrumentedDataSource((DataSource) bean, queryMetrics);
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.jdbc;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Collects what is needed to size the connection pool: pool occupancy and acquire times from PoolMetrics,
+ * statement times and slow samples from QueryMetrics, and statement cache counts from Hibernate.
+ *
+ * Neither HikariCP nor the H2 driver caches prepared statements on the client, so the cache figures are
+ * Hibernate's: its query plan cache, and how many JDBC statements it prepared. They are only collected when
+ * hibernate.generate_statistics is on, as in the pool-tuning profile.
+ */
+@Component
+public class DatabaseDiagnostics {
+
+    private final PoolMetrics poolMetrics;
+    private final QueryMetrics queryMetrics;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    public DatabaseDiagnostics(PoolMetrics poolMetrics, QueryMetrics queryMetrics,
+            EntityManagerFactory entityManagerFactory) {
+        this.poolMetrics = poolMetrics;
+        this.queryMetrics = queryMetrics;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * @return pool, statement cache and query metrics.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pool", poolMetrics.getStats());
+        stats.put("statementCache", getStatementCacheStats());
+        stats.put("queries", queryMetrics.getStats());
+        return stats;
+    }
+
+    private Map<String, Object> getStatementCacheStats() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Object> cache = new LinkedHashMap<>();
+        cache.put("enabled", statistics.isStatisticsEnabled());
+        if (statistics.isStatisticsEnabled()) {
+            long hits = statistics.getQueryPlanCacheHitCount();
+            long misses = statistics.getQueryPlanCacheMissCount();
+            cache.put("queryPlanCacheHits", hits);
+            cache.put("queryPlanCacheMisses", misses);
+            cache.put("queryPlanCacheHitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+            cache.put("statementsPrepared", statistics.getPrepareStatementCount());
+            cache.put("statementsClosed", statistics.getCloseStatementCount());
+        }
+        return cache;
+    }
+}
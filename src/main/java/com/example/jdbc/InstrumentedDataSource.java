@@ -0,0 +1,155 @@
+package com.example.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * DataSource wrapper that times every statement execution and reports it to QueryMetrics.
+ *
+ * Connections and statements are wrapped in JDK proxies; every other call goes straight to the pooled
+ * object. Spring and Boot unwrap DelegatingDataSource where they need the pool itself.
+ *
+ * While the current thread works for an inspected request (see StatementInspector), every execution is also
+ * counted in its RequestStatements, and result sets are wrapped to count the rows read from them.
+ */
+public class InstrumentedDataSource extends DelegatingDataSource {
+
+    private final QueryMetrics queryMetrics;
+
+    public InstrumentedDataSource(DataSource target, QueryMetrics queryMetrics) {
+        super(target);
+        this.queryMetrics = queryMetrics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, new ConnectionHandler(connection));
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+
+        ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (isIdentityMethod(method)) {
+                return identity(proxy, method, args);
+            }
+            Object result = invokeTarget(connection, method, args);
+            switch (method.getName()) {
+                case "prepareStatement":
+                    return wrapStatement(PreparedStatement.class, (Statement) result, (String) args[0]);
+                case "prepareCall":
+                    return wrapStatement(CallableStatement.class, (Statement) result, (String) args[0]);
+                case "createStatement":
+                    return wrapStatement(Statement.class, (Statement) result, null);
+                default:
+                    return result;
+            }
+        }
+    }
+
+    private Object wrapStatement(Class<? extends Statement> type, Statement statement, String sql) {
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                new StatementHandler(statement, sql));
+    }
+
+    private class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final String preparedSql;
+
+        StatementHandler(Statement statement, String preparedSql) {
+            this.statement = statement;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (isIdentityMethod(method)) {
+                return identity(proxy, method, args);
+            }
+            RequestStatements requestStatements = RequestStatements.current();
+            if (method.getName().equals("getResultSet") && requestStatements != null) {
+                return countRows((ResultSet) invokeTarget(statement, method, args), requestStatements);
+            }
+            if (!method.getName().startsWith("execute")) {
+                return invokeTarget(statement, method, args);
+            }
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+            if (requestStatements != null) {
+                requestStatements.onStatement(sql);
+            }
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = invokeTarget(statement, method, args);
+            } finally {
+                queryMetrics.record(sql, System.nanoTime() - start);
+            }
+            if (result instanceof ResultSet && requestStatements != null) {
+                return countRows((ResultSet) result, requestStatements);
+            }
+            return result;
+        }
+    }
+
+    private static ResultSet countRows(ResultSet resultSet, RequestStatements requestStatements) {
+        if (resultSet == null) {
+            return null;
+        }
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+                (proxy, method, args) -> {
+                    if (isIdentityMethod(method)) {
+                        return identity(proxy, method, args);
+                    }
+                    Object result = invokeTarget(resultSet, method, args);
+                    if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                        requestStatements.onRow();
+                    }
+                    return result;
+                });
+    }
+
+    private static boolean isIdentityMethod(Method method) {
+        return method.getDeclaringClass() == Object.class
+                && (method.getName().equals("equals") || method.getName().equals("hashCode"));
+    }
+
+    // a proxy is only equal to itself, like the pooled object it stands for
+    private static Object identity(Object proxy, Method method, Object[] args) {
+        return method.getName().equals("equals") ? proxy == args[0] : System.identityHashCode(proxy);
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
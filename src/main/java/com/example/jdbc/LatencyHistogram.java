@@ -0,0 +1,63 @@
+package com.example.jdbc;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with fixed, roughly logarithmic buckets from 100 microseconds to 1 second.
+ */
+public class LatencyHistogram {
+
+    private static final long[] BOUNDS_MICROS = { 100, 500, 1_000, 5_000, 10_000, 50_000, 100_000, 500_000,
+            1_000_000 };
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_MICROS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void recordNanos(long nanos) {
+        long micros = nanos / 1_000;
+        int bucket = 0;
+        while (bucket < BOUNDS_MICROS.length && micros > BOUNDS_MICROS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        count.increment();
+        totalMicros.add(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    /**
+     * @return count, average and maximum in microseconds, and the count per bucket keyed by upper bound.
+     */
+    public Map<String, Object> toMap() {
+        long n = count.sum();
+        Map<String, Object> histogram = new LinkedHashMap<>();
+        histogram.put("count", n);
+        histogram.put("avgMicros", n == 0 ? 0 : totalMicros.sum() / n);
+        histogram.put("maxMicros", maxMicros.get());
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < BOUNDS_MICROS.length; i++) {
+            counts.put("<=" + label(BOUNDS_MICROS[i]), buckets[i].sum());
+        }
+        counts.put(">" + label(BOUNDS_MICROS[BOUNDS_MICROS.length - 1]), buckets[BOUNDS_MICROS.length].sum());
+        histogram.put("buckets", counts);
+        return histogram;
+    }
+
+    private static String label(long micros) {
+        if (micros >= 1_000_000) {
+            return micros / 1_000_000 + "s";
+        }
+        return micros >= 1_000 ? micros / 1_000 + "ms" : micros + "us";
+    }
+}
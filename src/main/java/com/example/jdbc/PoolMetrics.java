@@ -0,0 +1,78 @@
+package com.example.jdbc;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+/**
+ * HikariCP metrics tracker that records how long threads wait to acquire a connection and how long they hold
+ * it, plus the pool's own occupancy counters. DataSourceInstrumentation installs it on the pool.
+ */
+@Component
+public class PoolMetrics implements MetricsTrackerFactory {
+
+    private final LatencyHistogram acquire = new LatencyHistogram();
+    private final LatencyHistogram usage = new LatencyHistogram();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private volatile PoolStats poolStats;
+    private volatile String poolName;
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolName = poolName;
+        this.poolStats = poolStats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                created.increment();
+            }
+
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquire.recordNanos(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usage.recordNanos(elapsedBorrowedMillis * 1_000_000);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+
+    /**
+     * @return pool occupancy and utilization, connection acquire and usage histograms, timeouts and
+     *     connections created. Occupancy is empty until the pool has started.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        PoolStats pool = poolStats;
+        stats.put("pool", poolName);
+        if (pool != null) {
+            stats.put("maxConnections", pool.getMaxConnections());
+            stats.put("minConnections", pool.getMinConnections());
+            stats.put("totalConnections", pool.getTotalConnections());
+            stats.put("activeConnections", pool.getActiveConnections());
+            stats.put("idleConnections", pool.getIdleConnections());
+            stats.put("pendingThreads", pool.getPendingThreads());
+            stats.put("utilization", pool.getMaxConnections() == 0 ? 0.0
+                    : (double) pool.getActiveConnections() / pool.getMaxConnections());
+        }
+        stats.put("connectionTimeouts", timeouts.sum());
+        stats.put("connectionsCreated", created.sum());
+        stats.put("acquire", acquire.toMap());
+        stats.put("usage", usage.toMap());
+        return stats;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.jdbc;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Execution times of every SQL statement, and samples of the slow ones.
+ *
+ * A statement slower than app.diagnostics.slow-query-millis is kept, with its SQL and the application
+ * method that ran it, in a ring of the most recent slow-query-samples.
+ */
+@Component
+public class QueryMetrics {
+
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    private final LatencyHistogram executions = new LatencyHistogram();
+    private final LongAdder slowCount = new LongAdder();
+    private final long slowQueryNanos;
+    private final SlowQuery[] samples;
+    private int nextSample;
+
+    public QueryMetrics(@Value("${app.diagnostics.slow-query-millis:50}") long slowQueryMillis,
+            @Value("${app.diagnostics.slow-query-samples:20}") int sampleCount) {
+        this.slowQueryNanos = slowQueryMillis * 1_000_000;
+        this.samples = new SlowQuery[sampleCount];
+    }
+
+    /**
+     * @param sql the statement, or null if unknown.
+     * @param nanos how long it ran.
+     */
+    public void record(String sql, long nanos) {
+        executions.recordNanos(nanos);
+        if (nanos >= slowQueryNanos) {
+            slowCount.increment();
+            SlowQuery sample = new SlowQuery(sql, nanos / 1_000_000, applicationCaller(), System.currentTimeMillis());
+            synchronized (samples) {
+                samples[nextSample] = sample;
+                nextSample = (nextSample + 1) % samples.length;
+            }
+        }
+    }
+
+    /**
+     * @return the execution time histogram, the number of slow statements and the recent slow samples, newest
+     *     first.
+     */
+    public Map<String, Object> getStats() {
+        List<Map<String, Object>> recent = new ArrayList<>();
+        synchronized (samples) {
+            for (int i = 1; i <= samples.length; i++) {
+                SlowQuery sample = samples[(nextSample - i + samples.length) % samples.length];
+                if (sample != null) {
+                    recent.add(sample.toMap());
+                }
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("executions", executions.toMap());
+        stats.put("slowThresholdMillis", slowQueryNanos / 1_000_000);
+        stats.put("slowCount", slowCount.sum());
+        stats.put("slowSamples", recent);
+        return stats;
+    }
+
+    /**
+     * @return Class.method of the innermost application frame outside this package on the current stack, or
+     *     null if there is none.
+     */
+    static String applicationCaller() {
+        Optional<String> caller = STACK_WALKER.walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith("com.example.")
+                        && !frame.getClassName().startsWith("com.example.jdbc."))
+                .map(frame -> simpleName(frame.getClassName()) + "." + frame.getMethodName())
+                .findFirst());
+        return caller.orElse(null);
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    private static class SlowQuery {
+        private final String sql;
+        private final long millis;
+        private final String caller;
+        private final long at;
+
+        SlowQuery(String sql, long millis, String caller, long at) {
+            this.sql = sql;
+            this.millis = millis;
+            this.caller = caller;
+            this.at = at;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("sql", sql);
+            map.put("millis", millis);
+            map.put("caller", caller);
+            map.put("at", at);
+            return map;
+        }
+    }
+}
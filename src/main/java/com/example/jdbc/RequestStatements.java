@@ -0,0 +1,106 @@
+package com.example.jdbc;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The SQL statements run on behalf of one HTTP request: how many, how many rows they fetched, which
+ * application methods ran them, and which of them read a whole table.
+ *
+ * The StatementInspector binds it to the request thread and, through its TaskDecorator, to the bulkhead
+ * thread that runs the handler. InstrumentedDataSource reports to whatever is bound to the current thread.
+ */
+public class RequestStatements {
+
+    private static final ThreadLocal<RequestStatements> CURRENT = new ThreadLocal<>();
+
+    private final String handler;
+    private final AtomicInteger statements = new AtomicInteger();
+    private final AtomicLong rows = new AtomicLong();
+    private final Map<String, Integer> statementsByCaller = new ConcurrentHashMap<>();
+    private final List<String> unboundedQueries = new CopyOnWriteArrayList<>();
+
+    public RequestStatements(String handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * @return the statements of the request the current thread works for, or null outside a request.
+     */
+    public static RequestStatements current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @param statements the statements to bind to the current thread, may be null.
+     * @return the previously bound statements, to hand back to restore().
+     */
+    public static RequestStatements bind(RequestStatements statements) {
+        RequestStatements previous = CURRENT.get();
+        CURRENT.set(statements);
+        return previous;
+    }
+
+    public static void restore(RequestStatements previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    void onStatement(String sql) {
+        statements.incrementAndGet();
+        String caller = QueryMetrics.applicationCaller();
+        statementsByCaller.merge(caller == null ? "unknown" : caller, 1, Integer::sum);
+        if (isUnbounded(sql)) {
+            unboundedQueries.add((caller == null ? "" : caller + ": ") + sql);
+        }
+    }
+
+    void onRow() {
+        rows.incrementAndGet();
+    }
+
+    public String getHandler() {
+        return handler;
+    }
+
+    public int getStatements() {
+        return statements.get();
+    }
+
+    public long getRows() {
+        return rows.get();
+    }
+
+    /**
+     * @return statement counts keyed by the application method (Class.method) that ran them.
+     */
+    public Map<String, Integer> getStatementsByCaller() {
+        return statementsByCaller;
+    }
+
+    /**
+     * @return the queries that read a whole table, prefixed with the method that ran them.
+     */
+    public List<String> getUnboundedQueries() {
+        return unboundedQueries;
+    }
+
+    // a select with no where clause and no row limit reads every row of its table
+    static boolean isUnbounded(String sql) {
+        if (sql == null) {
+            return false;
+        }
+        String normalized = sql.toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").trim();
+        return normalized.startsWith("select ") && normalized.contains(" from ")
+                && !normalized.contains(" where ") && !normalized.contains(" limit ")
+                && !normalized.contains(" fetch ") && !normalized.contains(" group by ");
+    }
+}
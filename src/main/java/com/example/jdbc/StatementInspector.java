@@ -0,0 +1,180 @@
+package com.example.jdbc;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Counts the SQL statements and fetched rows of every HTTP request and flags the expensive ones. Meant for
+ * dev and staging: it is off unless app.diagnostics.statement-inspector.enabled is set, as the dev and
+ * staging profiles do.
+ *
+ * A request is flagged when it runs more than max-statements statements, fetches more than max-rows rows,
+ * or runs a query that reads a whole table. A flagged request is logged with its handler, e.g.
+ * SocialMediaController.createMessage, and the repository or service methods that ran the statements.
+ *
+ * The counts of the latest request of each handler are kept for GET /diagnostics/statements and for tests,
+ * see getLastRequest().
+ */
+@Component
+public class StatementInspector implements AsyncHandlerInterceptor, TaskDecorator {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementInspector.class);
+    private static final String STATEMENTS = StatementInspector.class.getName() + ".statements";
+
+    private final boolean enabled;
+    private final int maxStatements;
+    private final long maxRows;
+    private final Map<String, HandlerStats> handlers = new ConcurrentHashMap<>();
+
+    public StatementInspector(@Value("${app.diagnostics.statement-inspector.enabled:false}") boolean enabled,
+            @Value("${app.diagnostics.statement-inspector.max-statements:10}") int maxStatements,
+            @Value("${app.diagnostics.statement-inspector.max-rows:500}") long maxRows) {
+        this.enabled = enabled;
+        this.maxStatements = maxStatements;
+        this.maxRows = maxRows;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // an async handler is dispatched a second time to write its result; it keeps the statements it started with
+        if (!enabled || !(handler instanceof HandlerMethod) || request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        HandlerMethod method = (HandlerMethod) handler;
+        RequestStatements statements = new RequestStatements(
+                method.getBeanType().getSimpleName() + "." + method.getMethod().getName());
+        request.setAttribute(STATEMENTS, statements);
+        RequestStatements.bind(statements);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+            Object handler) {
+        RequestStatements.restore(null);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        RequestStatements.restore(null);
+        RequestStatements statements = (RequestStatements) request.getAttribute(STATEMENTS);
+        if (statements == null) {
+            return;
+        }
+        request.removeAttribute(STATEMENTS);
+        boolean flagged = statements.getStatements() > maxStatements || statements.getRows() > maxRows
+                || !statements.getUnboundedQueries().isEmpty();
+        if (flagged) {
+            logger.warn("{} ran {} statements fetching {} rows; statements by caller: {}; unbounded queries: {}",
+                    statements.getHandler(), statements.getStatements(), statements.getRows(),
+                    statements.getStatementsByCaller(), statements.getUnboundedQueries());
+        }
+        handlers.computeIfAbsent(statements.getHandler(), name -> new HandlerStats()).record(statements, flagged);
+    }
+
+    /**
+     * Carry the statements of the submitting request over to the thread that runs the task.
+     */
+    @Override
+    public Runnable decorate(Runnable task) {
+        RequestStatements statements = RequestStatements.current();
+        if (statements == null) {
+            return task;
+        }
+        return () -> {
+            RequestStatements previous = RequestStatements.bind(statements);
+            try {
+                task.run();
+            } finally {
+                RequestStatements.restore(previous);
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param handler the handler, as Controller.method.
+     * @return the statements of the latest completed request to the handler, or null if there was none.
+     */
+    public RequestStatements getLastRequest(String handler) {
+        HandlerStats stats = handlers.get(handler);
+        return stats == null ? null : stats.last;
+    }
+
+    /**
+     * Forget the latest request of a handler, so the next one can be told apart.
+     *
+     * @param handler the handler, as Controller.method.
+     */
+    public void clearLastRequest(String handler) {
+        HandlerStats stats = handlers.get(handler);
+        if (stats != null) {
+            stats.last = null;
+        }
+    }
+
+    /**
+     * @return per handler: requests, flagged requests, the maximum statements and rows of one request, and the
+     *     counts of the latest request.
+     */
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        handlers.forEach((handler, handlerStats) -> stats.put(handler, handlerStats.toMap()));
+        return stats;
+    }
+
+    private static class HandlerStats {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder flagged = new LongAdder();
+        private final AtomicInteger maxStatements = new AtomicInteger();
+        private volatile long maxRows;
+        private volatile RequestStatements last;
+
+        void record(RequestStatements statements, boolean wasFlagged) {
+            requests.increment();
+            if (wasFlagged) {
+                flagged.increment();
+            }
+            maxStatements.accumulateAndGet(statements.getStatements(), Math::max);
+            synchronized (this) {
+                maxRows = Math.max(maxRows, statements.getRows());
+            }
+            last = statements;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("requests", requests.sum());
+            map.put("flagged", flagged.sum());
+            map.put("maxStatements", maxStatements.get());
+            map.put("maxRows", maxRows);
+            RequestStatements latest = last;
+            if (latest != null) {
+                map.put("lastStatements", latest.getStatements());
+                map.put("lastRows", latest.getRows());
+                map.put("lastStatementsByCaller", latest.getStatementsByCaller());
+                map.put("lastUnboundedQueries", latest.getUnboundedQueries());
+            }
+            return map;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.outbox;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.springframework.stereotype.Component;
+
+import com.example.entity.OutboxEvent;
+
+/**
+ * OutboxSink that hands every event to subscribers in the same JVM, synchronously and in order. A subscriber
+ * that throws fails the batch, so it is redelivered.
+ */
+@Component
+public class InProcessEventBus implements OutboxSink {
+
+    private final List<Consumer<OutboxEvent>> subscribers = new CopyOnWriteArrayList<>();
+
+    public void subscribe(Consumer<OutboxEvent> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    @Override
+    public String getName() {
+        return "bus";
+    }
+
+    @Override
+    public void publish(List<OutboxEvent> events) {
+        for (OutboxEvent event : events) {
+            for (Consumer<OutboxEvent> subscriber : subscribers) {
+                subscriber.accept(event);
+            }
+        }
+    }
+}
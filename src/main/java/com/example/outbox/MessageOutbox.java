@@ -0,0 +1,49 @@
+package com.example.outbox;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.entity.Message;
+import com.example.entity.OutboxEvent;
+import com.example.repository.OutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Writes message lifecycle events to the outbox table. Must be called inside the transaction that makes the
+ * change, so the event is committed if and only if the change is; OutboxRelay publishes it afterwards.
+ */
+@Component
+public class MessageOutbox {
+
+    public static final String CREATED = "CREATED";
+    public static final String UPDATED = "UPDATED";
+    public static final String DELETED = "DELETED";
+
+    private final OutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public MessageOutbox(OutboxRepository outboxRepository, ObjectMapper objectMapper) {
+        this.outboxRepository = outboxRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @param eventType CREATED, UPDATED or DELETED.
+     * @param message the message after the change, or before it for a delete.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(String eventType, Message message) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize message " + message.getMessageId(), e);
+        }
+        outboxRepository.save(new OutboxEvent(eventType, message.getMessageId(), message.getPostedBy(), payload,
+                System.currentTimeMillis()));
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.outbox;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.entity.OutboxEvent;
+import com.example.repository.OutboxRepository;
+
+/**
+ * Publishes the events in the outbox table to the selected OutboxSink, oldest first, in batches.
+ *
+ * An event is deleted from the outbox only after the sink accepted its batch, so a crash or a failed publish
+ * leads to redelivery, never loss (at-least-once). A failed batch stops the run and is retried whole on the
+ * next poll.
+ *
+ * Event ids are assigned when the row is inserted, not when its transaction commits, so a younger event can
+ * become visible before an older one. The relay therefore publishes only up to the first missing id and
+ * waits for it, which keeps the events of each account in order. An id still missing after
+ * gap-timeout-millis belonged to a transaction that rolled back, and the relay moves past it; the timeout
+ * must exceed the longest write transaction. After a restart the relay starts from the oldest event waiting.
+ * Only one node may run the relay, selected with app.outbox.relay-enabled; two relays would interleave
+ * batches.
+ */
+@Component
+@Lazy(false)
+public class OutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxRepository outboxRepository;
+    private final OutboxSink sink;
+    private final int batchSize;
+    private final long gapTimeoutMillis;
+    private final boolean enabled;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder gapsSkipped = new LongAdder();
+    private final LongAdder totalLagMillis = new LongAdder();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+    private volatile long lastLagMillis;
+    private volatile long lastPublishedEventId;
+    // the id expected next, or -1 until the first event is seen; the missing id waited for and since when
+    private long nextEventId = -1;
+    private volatile long missingEventId = -1;
+    private long missingSince;
+
+    @Autowired
+    public OutboxRelay(OutboxRepository outboxRepository, List<OutboxSink> sinks,
+            @Value("${app.outbox.sink:bus}") String sinkName,
+            @Value("${app.outbox.batch-size:100}") int batchSize,
+            @Value("${app.outbox.gap-timeout-millis:5000}") long gapTimeoutMillis,
+            @Value("${app.outbox.relay-enabled:true}") boolean enabled) {
+        this.outboxRepository = outboxRepository;
+        this.sink = sinks.stream().filter(candidate -> candidate.getName().equals(sinkName)).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No outbox sink named " + sinkName));
+        this.batchSize = batchSize;
+        this.gapTimeoutMillis = gapTimeoutMillis;
+        this.enabled = enabled;
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-millis:200}")
+    public void relay() {
+        if (!enabled) {
+            return;
+        }
+        List<OutboxEvent> batch;
+        do {
+            List<OutboxEvent> waiting = outboxRepository.findAllByOrderByEventIdAsc(PageRequest.of(0, batchSize));
+            batch = waiting.subList(0, readyCount(waiting));
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                sink.publish(batch);
+            } catch (Exception e) {
+                failures.increment();
+                logger.warn("Could not publish {} outbox events to {}; retrying on the next poll", batch.size(),
+                        sink.getName(), e);
+                return;
+            }
+            List<Long> eventIds = new ArrayList<>(batch.size());
+            for (OutboxEvent event : batch) {
+                eventIds.add(event.getEventId());
+            }
+            outboxRepository.deleteAllByIdInBatch(eventIds);
+            recordPublished(batch);
+            nextEventId = Math.max(nextEventId, batch.get(batch.size() - 1).getEventId() + 1);
+        } while (batch.size() == batchSize);
+    }
+
+    // the number of leading events that can be published: those before the first missing id
+    private int readyCount(List<OutboxEvent> waiting) {
+        long expected = nextEventId;
+        int ready = 0;
+        for (OutboxEvent event : waiting) {
+            long eventId = event.getEventId();
+            if (expected >= 0 && eventId > expected && !gapTimedOut(expected)) {
+                break;
+            }
+            expected = Math.max(expected, eventId + 1);
+            ready++;
+        }
+        return ready;
+    }
+
+    private boolean gapTimedOut(long eventId) {
+        long now = System.currentTimeMillis();
+        if (missingEventId != eventId) {
+            missingEventId = eventId;
+            missingSince = now;
+            return false;
+        }
+        if (now - missingSince < gapTimeoutMillis) {
+            return false;
+        }
+        gapsSkipped.increment();
+        missingEventId = -1;
+        logger.warn("Outbox event {} did not appear within {} ms; publishing the events after it", eventId,
+                gapTimeoutMillis);
+        return true;
+    }
+
+    /**
+     * @return the sink, counts of published events, batches, failures and skipped gaps, the number of events
+     *     waiting and the missing id they wait for, and the lag between writing and publishing an event.
+     */
+    public Map<String, Object> getStats() {
+        long publishedCount = published.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sink", sink.getName());
+        stats.put("enabled", enabled);
+        stats.put("pending", outboxRepository.count());
+        stats.put("published", publishedCount);
+        stats.put("batches", batches.sum());
+        stats.put("failures", failures.sum());
+        stats.put("gapsSkipped", gapsSkipped.sum());
+        stats.put("waitingForEventId", missingEventId);
+        stats.put("lastPublishedEventId", lastPublishedEventId);
+        stats.put("lagMillisLast", lastLagMillis);
+        stats.put("lagMillisAvg", publishedCount == 0 ? 0 : totalLagMillis.sum() / publishedCount);
+        stats.put("lagMillisMax", maxLagMillis.get());
+        return stats;
+    }
+
+    private void recordPublished(List<OutboxEvent> batch) {
+        long now = System.currentTimeMillis();
+        for (OutboxEvent event : batch) {
+            long lag = Math.max(0, now - event.getCreatedAt());
+            totalLagMillis.add(lag);
+            maxLagMillis.accumulateAndGet(lag, Math::max);
+            lastLagMillis = lag;
+        }
+        published.add(batch.size());
+        batches.increment();
+        lastPublishedEventId = batch.get(batch.size() - 1).getEventId();
+    }
+}
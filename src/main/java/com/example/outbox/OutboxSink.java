@@ -0,0 +1,25 @@
+package com.example.outbox;
+
+import java.util.List;
+
+import com.example.entity.OutboxEvent;
+
+/**
+ * Destination the OutboxRelay publishes events to, selected by app.outbox.sink.
+ */
+public interface OutboxSink {
+
+    /**
+     * @return the value of app.outbox.sink that selects this sink.
+     */
+    String getName();
+
+    /**
+     * Publish a batch, in list order. Throwing means the batch was not (fully) published; the relay retries it
+     * from the first event, so a sink may see an event more than once.
+     *
+     * @param events the events, ordered by eventId.
+     * @throws Exception if the batch could not be published.
+     */
+    void publish(List<OutboxEvent> events) throws Exception;
+}
@@ -0,0 +1,77 @@
+package com.example.ratelimit;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.example.exception.ServiceOverloadedException;
+
+/**
+ * Global concurrency limit on requests being handled.
+ *
+ * Once maxConcurrentRequests are in progress, a new request waits at most admissionTimeoutMillis for a slot
+ * and is then shed with a 503. Bounding the work in progress keeps latency flat for the admitted requests
+ * instead of letting every request slow down together.
+ */
+@Component
+public class AdmissionControl {
+
+    private final Semaphore permits;
+    private final int capacity;
+    private final long timeoutMillis;
+    private final boolean enabled;
+    private final LongAdder shed = new LongAdder();
+
+    @Autowired
+    public AdmissionControl(RateLimitProperties properties) {
+        this.capacity = properties.getMaxConcurrentRequests();
+        this.permits = new Semaphore(capacity);
+        this.timeoutMillis = properties.getAdmissionTimeoutMillis();
+        this.enabled = properties.isEnabled();
+    }
+
+    /**
+     * Take a slot for a request. Every successful call must be paired with release().
+     *
+     * @return true if a slot was taken, false if admission control is disabled.
+     * @throws ServiceOverloadedException if no slot became free in time.
+     */
+    public boolean admit() {
+        if (!enabled) {
+            return false;
+        }
+        try {
+            if (permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        shed.increment();
+        throw new ServiceOverloadedException("Server is busy. Try again later.");
+    }
+
+    /**
+     * Give back a slot taken by admit().
+     */
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * @return the number of requests currently admitted.
+     */
+    public int getInProgress() {
+        return capacity - permits.availablePermits();
+    }
+
+    /**
+     * @return the number of requests shed since startup.
+     */
+    public long getShedCount() {
+        return shed.sum();
+    }
+}
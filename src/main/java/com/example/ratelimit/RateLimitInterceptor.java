@@ -0,0 +1,54 @@
+package com.example.ratelimit;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Applies the per-IP rate limits and global admission control before a controller handler runs.
+ *
+ * Limits keyed by request body content (username, posting account) are checked in the handlers themselves.
+ * An admitted asynchronous request keeps its slot until the async dispatch that writes its response completes.
+ */
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private static final String ADMITTED = RateLimitInterceptor.class.getName() + ".admitted";
+
+    private RateLimiter rateLimiter;
+    private AdmissionControl admissionControl;
+
+    @Autowired
+    public RateLimitInterceptor(RateLimiter rateLimiter, AdmissionControl admissionControl) {
+        this.rateLimiter = rateLimiter;
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // an async handler is dispatched a second time to write its result; it was already checked and admitted
+        if (!(handler instanceof HandlerMethod) || request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        rateLimiter.checkClientIp(((HandlerMethod) handler).getMethod().getName(), request.getRemoteAddr());
+        // admit last, so a rate-limited request never holds a slot
+        if (admissionControl.admit()) {
+            request.setAttribute(ADMITTED, Boolean.TRUE);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        if (request.getAttribute(ADMITTED) != null) {
+            request.removeAttribute(ADMITTED);
+            admissionControl.release();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.ratelimit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Rate limits and admission control settings, bound from the app.rate-limit.* properties.
+ */
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+    /** Applied to every endpoint, per client IP. */
+    private Limit perIp = new Limit(50, 100);
+    private Limit registerPerIp = new Limit(5, 10);
+    private Limit loginPerIp = new Limit(10, 20);
+    private Limit loginPerUsername = new Limit(5, 10);
+    private Limit createMessagePerIp = new Limit(20, 40);
+    private Limit createMessagePerAccount = new Limit(10, 20);
+    /** Most requests allowed to run at once before new ones are shed. */
+    private int maxConcurrentRequests = 150;
+    /** How long a request may wait for a slot before it is shed. */
+    private long admissionTimeoutMillis = 50;
+    /** Upper bound on the number of buckets kept in memory. */
+    private int maxBuckets = 100_000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Limit getPerIp() {
+        return perIp;
+    }
+
+    public void setPerIp(Limit perIp) {
+        this.perIp = perIp;
+    }
+
+    public Limit getRegisterPerIp() {
+        return registerPerIp;
+    }
+
+    public void setRegisterPerIp(Limit registerPerIp) {
+        this.registerPerIp = registerPerIp;
+    }
+
+    public Limit getLoginPerIp() {
+        return loginPerIp;
+    }
+
+    public void setLoginPerIp(Limit loginPerIp) {
+        this.loginPerIp = loginPerIp;
+    }
+
+    public Limit getLoginPerUsername() {
+        return loginPerUsername;
+    }
+
+    public void setLoginPerUsername(Limit loginPerUsername) {
+        this.loginPerUsername = loginPerUsername;
+    }
+
+    public Limit getCreateMessagePerIp() {
+        return createMessagePerIp;
+    }
+
+    public void setCreateMessagePerIp(Limit createMessagePerIp) {
+        this.createMessagePerIp = createMessagePerIp;
+    }
+
+    public Limit getCreateMessagePerAccount() {
+        return createMessagePerAccount;
+    }
+
+    public void setCreateMessagePerAccount(Limit createMessagePerAccount) {
+        this.createMessagePerAccount = createMessagePerAccount;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    public long getAdmissionTimeoutMillis() {
+        return admissionTimeoutMillis;
+    }
+
+    public void setAdmissionTimeoutMillis(long admissionTimeoutMillis) {
+        this.admissionTimeoutMillis = admissionTimeoutMillis;
+    }
+
+    public int getMaxBuckets() {
+        return maxBuckets;
+    }
+
+    public void setMaxBuckets(int maxBuckets) {
+        this.maxBuckets = maxBuckets;
+    }
+
+    /**
+     * A sustained rate and the burst allowed on top of it.
+     */
+    public static class Limit {
+        private double perSecond;
+        private int burst;
+
+        public Limit() {
+        }
+
+        public Limit(double perSecond, int burst) {
+            this.perSecond = perSecond;
+            this.burst = burst;
+        }
+
+        public double getPerSecond() {
+            return perSecond;
+        }
+
+        public void setPerSecond(double perSecond) {
+            this.perSecond = perSecond;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        public void setBurst(int burst) {
+            this.burst = burst;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.ratelimit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.example.ratelimit.RateLimitProperties.Limit;
+import com.example.exception.TooManyRequestsException;
+
+/**
+ * In-process token bucket rate limiter keyed by client IP, username and account id.
+ *
+ * Buckets live in a ConcurrentHashMap and are lock-free (see TokenBucket), so checking a limit under
+ * contention costs one map lookup and one compare-and-set. When the map grows past maxBuckets, buckets that
+ * have refilled completely are dropped; they carry no state a fresh bucket would not have.
+ */
+@Component
+public class RateLimiter {
+
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final ReentrantLock sweepLock = new ReentrantLock();
+    private final LongAdder rejected = new LongAdder();
+    private final RateLimitProperties properties;
+
+    @Autowired
+    public RateLimiter(RateLimitProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Limit any request from the client IP, plus the endpoint-specific IP limit where one is configured.
+     *
+     * @param handlerName the name of the SocialMediaController handler method.
+     * @param clientIp the remote address of the request.
+     * @throws TooManyRequestsException if a limit is exhausted.
+     */
+    public void checkClientIp(String handlerName, String clientIp) {
+        check("ip", properties.getPerIp(), clientIp);
+        switch (handlerName) {
+            case "registerAccount":
+                check("register-ip", properties.getRegisterPerIp(), clientIp);
+                break;
+            case "loginAccount":
+                check("login-ip", properties.getLoginPerIp(), clientIp);
+                break;
+            case "createMessage":
+                check("create-message-ip", properties.getCreateMessagePerIp(), clientIp);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Limit login attempts against one username, wherever they come from.
+     *
+     * @param username the username being logged in.
+     * @throws TooManyRequestsException if the limit is exhausted.
+     */
+    public void checkLoginUsername(String username) {
+        check("login-username", properties.getLoginPerUsername(), username);
+    }
+
+    /**
+     * Limit messages posted by one account.
+     *
+     * @param accountId the posting account.
+     * @throws TooManyRequestsException if the limit is exhausted.
+     */
+    public void checkCreateMessageAccount(Integer accountId) {
+        check("create-message-account", properties.getCreateMessagePerAccount(), accountId);
+    }
+
+    /**
+     * @return the number of requests rejected since startup.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    private void check(String name, Limit limit, Object key) {
+        if (!properties.isEnabled() || key == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        String bucketKey = name + ':' + key;
+        TokenBucket bucket = buckets.get(bucketKey);
+        if (bucket == null) {
+            if (buckets.size() >= properties.getMaxBuckets()) {
+                sweep(now);
+            }
+            bucket = buckets.computeIfAbsent(bucketKey,
+                    k -> new TokenBucket(limit.getPerSecond(), limit.getBurst(), now));
+        }
+        long waitNanos = bucket.tryAcquire(now);
+        if (waitNanos > 0) {
+            rejected.increment();
+            long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+            throw new TooManyRequestsException("Too many requests. Try again later.", retryAfterSeconds);
+        }
+    }
+
+    private void sweep(long now) {
+        if (sweepLock.tryLock()) {
+            try {
+                buckets.values().removeIf(bucket -> bucket.isFull(now));
+            } finally {
+                sweepLock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free token bucket.
+ *
+ * The bucket is stored as a single "theoretical arrival time" (the GCRA formulation of a token bucket), so
+ * taking a token is one compare-and-set on an AtomicLong and contended callers never block each other.
+ * A bucket refills at permitsPerSecond and holds at most burst tokens.
+ */
+public class TokenBucket {
+
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final AtomicLong theoreticalArrival;
+
+    public TokenBucket(double permitsPerSecond, int burst, long nowNanos) {
+        this.nanosPerToken = (long) (1_000_000_000L / permitsPerSecond);
+        this.burstNanos = nanosPerToken * Math.max(burst, 1);
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Take one token if one is available.
+     *
+     * @param nowNanos the current System.nanoTime().
+     * @return 0 if a token was taken, otherwise the nanoseconds until one will be available.
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long next = Math.max(current, nowNanos) + nanosPerToken;
+            long waitNanos = next - nowNanos - burstNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @param nowNanos the current System.nanoTime().
+     * @return true if the bucket has refilled completely, so dropping it loses nothing.
+     */
+    public boolean isFull(long nowNanos) {
+        return theoreticalArrival.get() <= nowNanos;
+    }
+}
@@ -1,6 +1,9 @@
 package com.example.repository;
 
+import java.util.stream.Stream;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.example.entity.Account;
@@ -10,4 +13,7 @@ import com.example.entity.Account;
 public interface AccountRepository extends JpaRepository<Account, Integer>{
     Account findByUsername(String username);
 
+    @Query("select a.username from Account a")
+    Stream<String> streamAllUsernames();
+
 }
@@ -0,0 +1,17 @@
+package com.example.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.example.entity.Follow;
+
+@Repository
+public interface FollowRepository extends JpaRepository<Follow, Integer>{
+
+    boolean existsByFollowerIdAndFolloweeId(int followerId, int followeeId);
+
+    List<Follow> findByFollowerIdAndFolloweeId(int followerId, int followeeId);
+
+}
@@ -0,0 +1,195 @@
+package com.example.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.entity.Message;
+import com.example.stats.AccountMessageStats;
+import com.example.store.IntIntConsumer;
+import com.example.store.TextInterner;
+
+/**
+ * Read-only access to the message table through plain JDBC.
+ *
+ * Rows are mapped straight into detached Message objects, so nothing is registered in the
+ * Hibernate persistence context and no dirty-checking snapshot is taken. The Message class is
+ * reused as the row type so the JSON written by the read endpoints stays exactly the same. Message texts
+ * go through the TextInterner, so rows with the same text share one String.
+ *
+ * The read-only transaction is opened here rather than in MessageService, so callers waiting on a coalesced
+ * read do not each hold a connection.
+ */
+@Repository
+@Transactional(readOnly = true)
+public class MessageReadRepository {
+
+    private static final String SELECT_MESSAGE =
+            "select messageId, postedBy, messageText, timePostedEpoch from message";
+
+    private static final String SELECT_ACCOUNT_STATS =
+            "select postedBy, count(*), min(timePostedEpoch), max(timePostedEpoch) from message";
+
+    private static final RowMapper<AccountMessageStats> ACCOUNT_STATS_ROW_MAPPER = (rs, rowNum) -> {
+        long first = rs.getLong(3);
+        Long firstValue = rs.wasNull() ? null : first;
+        long last = rs.getLong(4);
+        Long lastValue = rs.wasNull() ? null : last;
+        return new AccountMessageStats(rs.getInt(1), rs.getLong(2), firstValue, lastValue);
+    };
+
+    private JdbcTemplate jdbcTemplate;
+    private TextInterner textInterner;
+    private final RowMapper<Message> messageRowMapper = this::mapMessage;
+
+    @Autowired
+    public MessageReadRepository(JdbcTemplate jdbcTemplate, TextInterner textInterner) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.textInterner = textInterner;
+    }
+
+    /**
+     * Retrieve every message, ordered by message id.
+     *
+     * @return list of all messages.
+     */
+    public List<Message> findAll() {
+        return jdbcTemplate.query(SELECT_MESSAGE + " order by messageId", messageRowMapper);
+    }
+
+    /**
+     * Retrieve a single message by id.
+     *
+     * @param messageId the id of the message.
+     * @return the message, or null if there is no such message.
+     */
+    public Message findByMessageId(int messageId) {
+        List<Message> messages = jdbcTemplate.query(SELECT_MESSAGE + " where messageId = ?",
+                messageRowMapper, messageId);
+        return messages.isEmpty() ? null : messages.get(0);
+    }
+
+    /**
+     * Retrieve all messages posted by one account, ordered by message id.
+     *
+     * @param postedBy the account id of the poster.
+     * @return list of messages, empty if the account has not posted anything.
+     */
+    public List<Message> findByPostedBy(int postedBy) {
+        return jdbcTemplate.query(SELECT_MESSAGE + " where postedBy = ? order by messageId",
+                messageRowMapper, postedBy);
+    }
+
+    /**
+     * Retrieve the ids of the newest messages posted by any of the given accounts.
+     *
+     * @param postedBy the account ids of the posters.
+     * @param beforeId only ids smaller than this are returned.
+     * @param limit the most ids to return.
+     * @return message ids, newest first.
+     */
+    public int[] findRecentIdsByPostedByIn(Collection<Integer> postedBy, int beforeId, int limit) {
+        if (postedBy.isEmpty() || limit <= 0) {
+            return new int[0];
+        }
+        Object[] args = new Object[postedBy.size() + 2];
+        int i = 0;
+        for (Integer id : postedBy) {
+            args[i++] = id;
+        }
+        args[i++] = beforeId;
+        args[i] = limit;
+        List<Integer> ids = jdbcTemplate.queryForList("select messageId from message where postedBy in ("
+                + placeholders(postedBy.size()) + ") and messageId < ? order by messageId desc limit ?",
+                Integer.class, args);
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Retrieve the messages with the given ids. Ids without a message are skipped.
+     *
+     * @param messageIds the message ids.
+     * @return the messages, in no particular order.
+     */
+    public List<Message> findByMessageIdIn(int[] messageIds) {
+        if (messageIds.length == 0) {
+            return Collections.emptyList();
+        }
+        Object[] args = new Object[messageIds.length];
+        for (int i = 0; i < messageIds.length; i++) {
+            args[i] = messageIds[i];
+        }
+        return jdbcTemplate.query(SELECT_MESSAGE + " where messageId in (" + placeholders(messageIds.length) + ")",
+                messageRowMapper, args);
+    }
+
+    /**
+     * Count messages and find the first and last post time of every posting account, aggregated in the database.
+     *
+     * @return one entry per account that has posted.
+     */
+    public List<AccountMessageStats> aggregateByPostedBy() {
+        return jdbcTemplate.query(SELECT_ACCOUNT_STATS + " where postedBy is not null group by postedBy",
+                ACCOUNT_STATS_ROW_MAPPER);
+    }
+
+    /**
+     * Aggregate the messages of one posting account in the database.
+     *
+     * @param postedBy the account id of the poster.
+     * @return the account's stats, or null if it has no messages.
+     */
+    public AccountMessageStats aggregateForPostedBy(int postedBy) {
+        List<AccountMessageStats> stats = jdbcTemplate.query(
+                SELECT_ACCOUNT_STATS + " where postedBy = ? group by postedBy", ACCOUNT_STATS_ROW_MAPPER, postedBy);
+        return stats.isEmpty() ? null : stats.get(0);
+    }
+
+    /**
+     * Stream the text length of every message without materializing the messages.
+     *
+     * @param consumer receives each length; null texts are reported as 0.
+     */
+    public void streamTextLengths(IntConsumer consumer) {
+        jdbcTemplate.query("select char_length(messageText) from message",
+                (RowCallbackHandler) rs -> consumer.accept(rs.getInt(1)));
+    }
+
+    /**
+     * Stream the poster and id of every message that has a poster, without materializing the messages.
+     *
+     * @param consumer receives each postedBy and messageId, in messageId order.
+     */
+    public void streamPostedBy(IntIntConsumer consumer) {
+        jdbcTemplate.query("select postedBy, messageId from message where postedBy is not null order by messageId",
+                (RowCallbackHandler) rs -> consumer.accept(rs.getInt(1), rs.getInt(2)));
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder placeholders = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            placeholders.append(i == 0 ? "?" : ",?");
+        }
+        return placeholders.toString();
+    }
+
+    private Message mapMessage(ResultSet rs, int rowNum) throws SQLException {
+        int messageId = rs.getInt(1);
+        int postedBy = rs.getInt(2);
+        Integer postedByValue = rs.wasNull() ? null : postedBy;
+        String messageText = textInterner.intern(messageId, rs.getString(3));
+        long timePostedEpoch = rs.getLong(4);
+        Long timePostedEpochValue = rs.wasNull() ? null : timePostedEpoch;
+        return new Message(messageId, postedByValue, messageText, timePostedEpochValue);
+    }
+}
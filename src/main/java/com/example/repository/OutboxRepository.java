@@ -0,0 +1,16 @@
+package com.example.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.example.entity.OutboxEvent;
+
+@Repository
+public interface OutboxRepository extends JpaRepository<OutboxEvent, Long>{
+
+    List<OutboxEvent> findAllByOrderByEventIdAsc(Pageable pageable);
+
+}
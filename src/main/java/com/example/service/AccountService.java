@@ -2,19 +2,48 @@ package com.example.service;
 
 import java.util.List;
 
+import javax.annotation.PostConstruct;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.example.cache.AccountChange;
+import com.example.cache.AccountChangeChannel;
+import com.example.cache.CredentialCache;
+import com.example.cache.UsernameBloomFilter;
 import com.example.entity.Account;
 import com.example.exception.DuplicateAccountException;
 import com.example.exception.UnauthorizedUserException;
 import com.example.repository.AccountRepository;
+import com.example.validation.ValidationException;
+import com.example.validation.ValidationResult;
+import com.example.validation.WriteValidators;
 
 
 @Service
 public class AccountService {
     @Autowired
     private AccountRepository accountRepository;
+    @Autowired
+    private CredentialCache credentialCache;
+    @Autowired
+    private UsernameBloomFilter usernameBloomFilter;
+    @Autowired
+    private AccountChangeChannel accountChangeChannel;
+
+    /**
+     * Listen for registrations on other nodes, so this node's UsernameBloomFilter and CredentialCache stop
+     * answering "absent" for their usernames.
+     */
+    @PostConstruct
+    public void subscribeToAccountChanges() {
+        accountChangeChannel.addListener(change -> {
+            if (change.getType() == AccountChange.Type.REGISTERED) {
+                usernameBloomFilter.add(change.getUsername());
+                credentialCache.evict(change.getUsername());
+            }
+        });
+    }
     
     /**
      * Retrieve all accounts from the Account table.
@@ -28,54 +57,93 @@ public class AccountService {
     /**
      * Use the AccountRepository to persist and register an account. The given Account will not have an id provided.
      * The registration will be successful if and only if the username is not blank, the password 
-     * is at least 4 characters long, and an Account with that username does not already exist.
+     * is more than 4 characters long, and an Account with that username does not already exist.
+     * 
+     * The account is checked with WriteValidators.REGISTER_ACCOUNT before the username is looked up.
      * 
      * @return the account object that was inserted
      * @param account the account object of the account to be registered
+     * @throws ValidationException if the username or password does not meet the requirements
      * @throws DuplicateAccountException
      */
     public Account registerAccount(Account account) {
-        // Get all accounts
-        List<Account> accounts = (List<Account>) accountRepository.findAll();
-        String message = "Account already exists. Enter another account.";
-        
-        // loop
-        for (Account acc : accounts) {
-            if(account.getUsername().equals(acc.getUsername())){ // check if the account already exists and throw exception if so
-                throw new DuplicateAccountException(message);
-            } else { // Otherwise, check if the username and password meet requirements and insert and return the account if so
-                if(account.getUsername().length() > 0 && account.getPassword().length() > 4) {
-                    return accountRepository.save(account);
-                }
-            }
+        ValidationResult validation = WriteValidators.REGISTER_ACCOUNT.validate(account);
+        if (!validation.isValid()) {
+            throw validation.toException();
         }
+        String message = "Account already exists. Enter another account.";
 
-        return null;
+        // the filter rules out most new usernames without a query; a possible match is confirmed in the DB
+        if (usernameBloomFilter.mightContain(account.getUsername())
+                && accountRepository.findByUsername(account.getUsername()) != null) {
+            throw new DuplicateAccountException(message);
+        }
+        usernameBloomFilter.add(account.getUsername()); // before saving, so a login never sees a false "absent"
+        Account savedAccount = accountRepository.save(account);
+        credentialCache.evict(savedAccount.getUsername()); // drop any cached "unknown username"
+        accountChangeChannel.publish(AccountChange.Type.REGISTERED, savedAccount.getAccountId(),
+                savedAccount.getUsername(), null);
+        return savedAccount;
     }
 
-    
+    /**
+     * Check whether a username can still be registered. Most unused usernames are answered by the 
+     * UsernameBloomFilter alone; a possible match is confirmed with a query.
+     * 
+     * @param username the username to check.
+     * @return true if the username is not blank and no account has it.
+     */
+    public boolean isUsernameAvailable(String username) {
+        if (username == null || username.isBlank()) {
+            return false;
+        }
+        if (!usernameBloomFilter.mightContain(username)) {
+            return true;
+        }
+        return accountRepository.findByUsername(username) == null;
+    }    
 
     /**
      * Use the AccoutRepository to login an account. The given Account will not have an id provided.
      * The login will be successful if and only if the username and password provided in the 
      * request body JSON match a real account existing on the database.
      *
+     * Recently verified credentials and recently seen unknown usernames are answered from the 
+     * CredentialCache, and usernames the UsernameBloomFilter rules out are rejected, without querying 
+     * the database.
+     *
      * @param account the account object to be logged in.
      * @return the account if that account exists in the DB else return null.
      */
     public Account loginAccount(Account account) {
+        if (!WriteValidators.LOGIN_ACCOUNT.validate(account).isValid()) {
+            return null;
+        }
+        // credentials verified recently: answer from memory
+        Integer cachedAccountId = credentialCache.getVerifiedAccountId(account.getUsername(), account.getPassword());
+        if (cachedAccountId != null) {
+            return new Account(cachedAccountId, account.getUsername(), account.getPassword());
+        }
+        if (credentialCache.isKnownUnknown(account.getUsername())
+                || !usernameBloomFilter.mightContain(account.getUsername())) {
+            return null; // no username exists
+        }
+
+        long evictionCount = credentialCache.getEvictionCount();
         //Get account that matches by usernames
         Account loginAccount = accountRepository.findByUsername(account.getUsername());
 
         //  account exists
         if(loginAccount != null) {
             if(account.getUsername().equals(loginAccount.getUsername()) && account.getPassword().equals(loginAccount.getPassword())) {
+                credentialCache.putVerified(loginAccount.getUsername(), loginAccount.getPassword(), loginAccount.getAccountId());
                 return loginAccount; // pass in the acc if the credentials are validated
             } else { // Credentials don't match.
                 throw new UnauthorizedUserException("Credentials don't match. Try again with different username/password.");
             }
         }
 
+        credentialCache.putUnknown(account.getUsername(), evictionCount);
         return null; // no username exists 
     }
 }
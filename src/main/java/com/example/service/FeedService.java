@@ -0,0 +1,385 @@
+package com.example.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.example.cache.AccountChange;
+import com.example.cache.AccountChangeChannel;
+import com.example.entity.Follow;
+import com.example.entity.Message;
+import com.example.feed.FeedBuffer;
+import com.example.repository.AccountRepository;
+import com.example.repository.FollowRepository;
+import com.example.repository.MessageReadRepository;
+
+/**
+ * Follow graph and home feeds.
+ *
+ * A home feed holds the messages of the accounts someone follows plus their own. When a message is created,
+ * its id is pushed into the feed buffer of every follower (fan-out on write). Accounts with at least
+ * celebrityFollowers followers are skipped by the fan-out; their recent messages are fetched when a feed is
+ * read instead (fan-out on read), so one post cannot trigger millions of pushes. A feed buffer is built
+ * from the database the first time its owner reads it. A deleted message is taken out of the buffers again.
+ * MessageService passes on the creates and deletes of other nodes too, so every node's buffers follow them,
+ * and follows and unfollows made on other nodes arrive through the AccountChangeChannel.
+ *
+ * Only accounts that follow someone get a buffer; any other feed is just the account's own posts, read from
+ * the database. At most maxFeeds buffers are kept. Room is made with the CLOCK algorithm, as in
+ * MessageJsonCache: reading a built buffer only marks it referenced, without any lock shared between feeds,
+ * and registering a new buffer sweeps the ring of slots until it finds one not read since the hand last
+ * passed it. A buffer is registered empty, so pushes land in it while its query runs outside the ring's
+ * lock, and readers wait until it is built.
+ */
+@Service
+public class FeedService {
+
+    @Autowired
+    private FollowRepository followRepository;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private MessageReadRepository messageReadRepository;
+    @Autowired
+    private AccountChangeChannel accountChangeChannel;
+
+    @Value("${app.feed.capacity:500}")
+    private int feedCapacity;
+    @Value("${app.feed.celebrity-followers:1000}")
+    private int celebrityFollowers;
+    @Value("${app.feed.max-page-size:100}")
+    private int maxPageSize;
+    @Value("${app.feed.max-feeds:10000}")
+    private int maxFeeds;
+
+    private final ConcurrentHashMap<Integer, Set<Integer>> followersOf = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Set<Integer>> followeesOf = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Feed> feeds = new ConcurrentHashMap<>();
+    // CLOCK ring: the account whose feed holds each slot, guarded by itself along with the hand and the
+    // insertions into feeds
+    private int[] ring;
+    private int hand;
+
+    /**
+     * Size the CLOCK ring and listen for follows and unfollows made on other nodes.
+     */
+    @PostConstruct
+    public void start() {
+        ring = new int[maxFeeds];
+        accountChangeChannel.addListener(change -> {
+            if (change.getType() == AccountChange.Type.FOLLOWED) {
+                onFollowed(change.getAccountId(), change.getFolloweeId());
+            } else if (change.getType() == AccountChange.Type.UNFOLLOWED) {
+                onUnfollowed(change.getAccountId(), change.getFolloweeId());
+            }
+        });
+    }
+
+    /**
+     * Load the follow graph from the follow table.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadFollowGraph() {
+        for (Follow follow : followRepository.findAll()) {
+            addEdge(follow.getFollowerId(), follow.getFolloweeId());
+        }
+    }
+
+    /**
+     * Make one account follow another. Following is idempotent.
+     *
+     * @param followerId the account that follows.
+     * @param followeeId the account to follow.
+     * @return the follow, or null if either account does not exist or an account tries to follow itself.
+     */
+    public Follow follow(int followerId, int followeeId) {
+        if (followerId == followeeId || !accountRepository.existsById(followerId)
+                || !accountRepository.existsById(followeeId)) {
+            return null;
+        }
+        List<Follow> existing = followRepository.findByFollowerIdAndFolloweeId(followerId, followeeId);
+        if (!existing.isEmpty()) {
+            return existing.get(0);
+        }
+        Follow follow = followRepository.save(new Follow(followerId, followeeId));
+        onFollowed(followerId, followeeId);
+        accountChangeChannel.publish(AccountChange.Type.FOLLOWED, followerId, null, followeeId);
+        return follow;
+    }
+
+    /**
+     * Make one account stop following another. Ids already in the follower's feed buffer are filtered out
+     * when the feed is read.
+     *
+     * @param followerId the account that follows.
+     * @param followeeId the account to unfollow.
+     * @return 1 if a follow was removed, otherwise 0.
+     */
+    public int unfollow(int followerId, int followeeId) {
+        List<Follow> existing = followRepository.findByFollowerIdAndFolloweeId(followerId, followeeId);
+        if (existing.isEmpty()) {
+            return 0;
+        }
+        followRepository.deleteAll(existing);
+        onUnfollowed(followerId, followeeId);
+        accountChangeChannel.publish(AccountChange.Type.UNFOLLOWED, followerId, null, followeeId);
+        return 1;
+    }
+
+    /**
+     * Fan a newly created message out to the feed buffers of its author and the author's followers. Only
+     * buffers that have been built are touched; the others will read the message from the database.
+     *
+     * @param message the saved message.
+     */
+    public void onMessageCreated(Message message) {
+        Integer authorId = message.getPostedBy();
+        if (authorId == null) {
+            return;
+        }
+        int messageId = message.getMessageId();
+        pushTo(authorId, messageId);
+        if (isCelebrity(authorId)) {
+            return;
+        }
+        for (Integer followerId : followersOf.getOrDefault(authorId, Collections.emptySet())) {
+            pushTo(followerId, messageId);
+        }
+    }
+
+    /**
+     * Take a deleted message out of the feed buffers it was pushed to.
+     *
+     * @param message the deleted message.
+     */
+    public void onMessageDeleted(Message message) {
+        Integer authorId = message.getPostedBy();
+        if (authorId == null) {
+            return;
+        }
+        int messageId = message.getMessageId();
+        removeFrom(authorId, messageId);
+        for (Integer followerId : followersOf.getOrDefault(authorId, Collections.emptySet())) {
+            removeFrom(followerId, messageId);
+        }
+    }
+
+    /**
+     * Read a page of an account's home feed, newest first.
+     *
+     * @param accountId the account whose feed to read.
+     * @param beforeId only messages with a smaller id are returned; null for the first page.
+     * @param limit the page size, capped at maxPageSize.
+     * @return up to limit messages. A page can come back shorter if messages were deleted since they were
+     *         pushed or their authors were unfollowed.
+     */
+    public List<Message> getFeed(int accountId, Integer beforeId, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        int before = beforeId == null ? Integer.MAX_VALUE : beforeId;
+
+        int[] pushed;
+        int[] pulled;
+        if (followeesOf.getOrDefault(accountId, Collections.emptySet()).isEmpty()) {
+            pushed = new int[0];
+            pulled = messageReadRepository.findRecentIdsByPostedByIn(Collections.singleton(accountId), before, pageSize);
+        } else {
+            pushed = builtFeed(accountId).readNewest(before, pageSize);
+            pulled = messageReadRepository.findRecentIdsByPostedByIn(celebrityFolloweesOf(accountId), before, pageSize);
+        }
+
+        int[] page = newestDistinct(pushed, pulled, pageSize);
+        Set<Integer> authors = new HashSet<>(followeesOf.getOrDefault(accountId, Collections.emptySet()));
+        authors.add(accountId);
+        List<Message> messages = new ArrayList<>(page.length);
+        for (Message message : messageReadRepository.findByMessageIdIn(page)) {
+            if (authors.contains(message.getPostedBy())) {
+                messages.add(message);
+            }
+        }
+        messages.sort(Comparator.comparing(Message::getMessageId).reversed());
+        return messages;
+    }
+
+    /**
+     * @return the number of feed buffers held.
+     */
+    public int getFeedCount() {
+        return feeds.size();
+    }
+
+    // the account's buffer, built by this caller if no one has started it
+    private FeedBuffer builtFeed(int accountId) {
+        Feed feed = feeds.get(accountId);
+        boolean building = false;
+        if (feed != null) {
+            feed.referenced = true;
+        } else if (ring.length == 0) {
+            feed = new Feed(feedCapacity);
+            building = true;
+        } else {
+            synchronized (ring) {
+                feed = feeds.get(accountId);
+                if (feed == null) {
+                    feed = new Feed(feedCapacity);
+                    feed.slot = freeSlot();
+                    feeds.put(accountId, feed);
+                    ring[feed.slot] = accountId;
+                    building = true;
+                }
+            }
+        }
+        if (building) {
+            try {
+                feed.buffer.merge(messageReadRepository.findRecentIdsByPostedByIn(
+                        feedAuthorsOf(accountId), Integer.MAX_VALUE, feedCapacity));
+                feed.built.complete(null);
+            } catch (RuntimeException e) {
+                // the slot is taken over by the next sweep that finds it
+                feeds.remove(accountId, feed);
+                feed.built.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            feed.built.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+        return feed.buffer;
+    }
+
+    // CLOCK sweep: a free slot, or the slot of the first feed not read since the hand last passed it
+    private int freeSlot() {
+        while (true) {
+            int slot = hand;
+            hand = hand + 1 == ring.length ? 0 : hand + 1;
+            int accountId = ring[slot];
+            Feed occupant = feeds.get(accountId);
+            if (occupant == null || occupant.slot != slot) {
+                return slot;
+            }
+            if (occupant.referenced) {
+                occupant.referenced = false;
+                continue;
+            }
+            feeds.remove(accountId, occupant);
+            return slot;
+        }
+    }
+
+    private Set<Integer> feedAuthorsOf(int accountId) {
+        Set<Integer> authors = new HashSet<>();
+        authors.add(accountId);
+        for (Integer followeeId : followeesOf.getOrDefault(accountId, Collections.emptySet())) {
+            if (!isCelebrity(followeeId)) {
+                authors.add(followeeId);
+            }
+        }
+        return authors;
+    }
+
+    private void pushTo(int accountId, int messageId) {
+        // a buffer still being built takes the push too; its query result is merged in afterwards
+        Feed feed = feeds.get(accountId);
+        if (feed != null) {
+            feed.buffer.add(messageId);
+        }
+    }
+
+    private void removeFrom(int accountId, int messageId) {
+        Feed feed = feeds.get(accountId);
+        if (feed != null) {
+            feed.buffer.remove(messageId);
+        }
+    }
+
+    private Set<Integer> celebrityFolloweesOf(int accountId) {
+        Set<Integer> celebrities = new HashSet<>();
+        for (Integer followeeId : followeesOf.getOrDefault(accountId, Collections.emptySet())) {
+            if (isCelebrity(followeeId)) {
+                celebrities.add(followeeId);
+            }
+        }
+        return celebrities;
+    }
+
+    private void onFollowed(int followerId, int followeeId) {
+        addEdge(followerId, followeeId);
+        if (!isCelebrity(followeeId)) {
+            // backfill the new followee's recent posts into an already built feed
+            int[] recent = messageReadRepository.findRecentIdsByPostedByIn(
+                    Collections.singleton(followeeId), Integer.MAX_VALUE, feedCapacity);
+            Feed feed = feeds.get(followerId);
+            if (feed != null) {
+                feed.buffer.merge(recent);
+            }
+        }
+    }
+
+    private void onUnfollowed(int followerId, int followeeId) {
+        Set<Integer> followers = followersOf.get(followeeId);
+        if (followers != null) {
+            followers.remove(followerId);
+        }
+        Set<Integer> followees = followeesOf.get(followerId);
+        if (followees != null) {
+            followees.remove(followeeId);
+        }
+    }
+
+    private boolean isCelebrity(int accountId) {
+        return followersOf.getOrDefault(accountId, Collections.emptySet()).size() >= celebrityFollowers;
+    }
+
+    private void addEdge(int followerId, int followeeId) {
+        followersOf.computeIfAbsent(followeeId, id -> ConcurrentHashMap.newKeySet()).add(followerId);
+        followeesOf.computeIfAbsent(followerId, id -> ConcurrentHashMap.newKeySet()).add(followeeId);
+    }
+
+    // merge two newest-first id arrays into the newest distinct ids, at most limit of them
+    private static int[] newestDistinct(int[] first, int[] second, int limit) {
+        int[] merged = new int[Math.min(limit, first.length + second.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (count < merged.length && (i < first.length || j < second.length)) {
+            int next;
+            if (j >= second.length || (i < first.length && first[i] >= second[j])) {
+                next = first[i++];
+            } else {
+                next = second[j++];
+            }
+            if (count == 0 || merged[count - 1] != next) {
+                merged[count++] = next;
+            }
+        }
+        return count == merged.length ? merged : Arrays.copyOf(merged, count);
+    }
+
+    private static class Feed {
+        private final FeedBuffer buffer;
+        private final CompletableFuture<Void> built = new CompletableFuture<>();
+        // CLOCK bookkeeping, set before the feed is published
+        private int slot = -1;
+        private volatile boolean referenced;
+
+        Feed(int capacity) {
+            this.buffer = new FeedBuffer(capacity);
+        }
+    }
+}
@@ -1,25 +1,79 @@
 package com.example.service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.example.cache.CacheInvalidation;
+import com.example.cache.MessageJsonCache;
+import com.example.cache.MessageJsonCache.CachedJson;
+import com.example.cache.MessageVersionTracker;
+import com.example.cache.SingleFlight;
+import com.example.cache.SingleFlight.KeyStats;
+import com.example.cache.TwoLevelMessageCache;
 import com.example.entity.Message;
-import com.example.repository.MessageRepository;
+import com.example.outbox.MessageOutbox;
+import com.example.stats.AccountMessageCounters;
+import com.example.store.MessageHotSet;
+import com.example.store.MessageStore;
+import com.example.store.PostedByIndex;
+import com.example.validation.WriteValidators;
 
 @Service
 public class MessageService {
     @Autowired
-    private MessageRepository messageRepository;
+    private MessageStore messageStore;
+    @Autowired
+    private MessageJsonCache messageJsonCache;
+    @Autowired
+    private MessageVersionTracker messageVersionTracker;
+    @Autowired
+    private MessageStatsService messageStatsService;
+    @Autowired
+    private AccountMessageCounters accountMessageCounters;
+    @Autowired
+    private FeedService feedService;
+    @Autowired
+    private MessageHotSet messageHotSet;
+    @Autowired
+    private TwoLevelMessageCache messageCache;
+    @Autowired
+    private MessageOutbox messageOutbox;
+
+    private final PostedByIndex postedByIndex = new PostedByIndex();
+
+    // concurrent identical reads share one in-flight query and its result; every write forgets the calls
+    // it affects before bumping the list version, so a caller that sees the new version never joins a query
+    // that started before the write committed
+    private final SingleFlight<Boolean, List<Message>> allMessagesFlight = new SingleFlight<>(1);
+    private final SingleFlight<Integer, Message> messageFlight = new SingleFlight<>(10000);
+    private final SingleFlight<Integer, List<Message>> accountMessagesFlight = new SingleFlight<>(10000);
 
     /**
      * Retrieve all Messages from the message table.
      *
+     * With the default JpaMessageStore, reads go through the MessageReadRepository so the returned messages
+     * are never managed entities.
+     * Concurrent calls share one query, so the returned list is unmodifiable.
+     *
      * @return list of all messages.
      */
     public List<Message> getAllMessages() {
-        List<Message> messages = messageRepository.findAll();
+        List<Message> messages = allMessagesFlight.execute(Boolean.TRUE,
+                () -> Collections.unmodifiableList(messageStore.findAll()));
         return messages;
     }
 
@@ -27,36 +81,129 @@ public class MessageService {
      /**
      * Retrieve Message from the message table by message id.
      *
+     * Reads go through the TwoLevelMessageCache: the off-heap MessageHotSet of this node first, then the
+     * cache shared by all nodes, then the store.
+     *
      * @return single message by id.
      * @param id the id of the message to be retrieved
      */
     public Message getMessageByID(Integer id) {
-        return (Message)messageRepository.findByMessageId(id);
+        Message resident = messageCache.getLocal(id);
+        if (resident != null) {
+            return resident;
+        }
+        return messageFlight.execute(id, () -> messageCache.load(id, messageStore::findByMessageId));
          
     }
 
 
+     /**
+     * Retrieve the pre-serialized JSON of a message by message id, loading and caching it on a miss.
+     * A cache hit does not touch the database.
+     *
+     * @return the cached JSON and its ETag, or null if there is no such message.
+     * @param id the id of the message to be retrieved
+     */
+    public CachedJson getMessageJsonByID(int id) {
+        return messageJsonCache.get(id, this::getMessageByID);
+    }
+
+
      /**
      * Retrieve all Messages from the message table given an account id.
      *
+     * Once the PostedByIndex is loaded, the account's message ids come from memory and only messages missing
+     * from the MessageHotSet are loaded. Concurrent calls for the same account share one query, so the
+     * returned list is unmodifiable.
+     *
      * @return list of messages by specific account.
      */
     public List<Message> getMessagesByAccountID(int id) {
-        List<Message> messages = messageRepository.findByPostedBy(id);
+        List<Message> messages = accountMessagesFlight.execute(id, () -> Collections.unmodifiableList(
+                postedByIndex.isLoaded() ? loadMessages(postedByIndex.get(id)) : messageStore.findByPostedBy(id)));
         return messages;
 
     }
 
 
+     /**
+     * Listen for changes other nodes make to messages, so the JSON cache, the PostedByIndex, the feed
+     * buffers and the list versions of this node follow them.
+     */
+    @PostConstruct
+    public void subscribeToInvalidations() {
+        messageCache.setInvalidationListener(this::onRemoteChange);
+    }
+
+
+     /**
+     * Fill the PostedByIndex from a streamed scan of the store. Writes that commit during the scan are kept.
+     * A store that seeds itself on startup does so in an earlier listener, so the scan sees the seeded data.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadPostedByIndex() {
+        postedByIndex.load(messageStore::streamPostedBy);
+    }
+
+
+     /**
+     * @return the PostedByIndex that serves account message lookups.
+     */
+    public PostedByIndex getPostedByIndex() {
+        return postedByIndex;
+    }
+
+
+     /**
+     * Retrieve the number of messages posted by an account from the in-memory counters. Does not query 
+     * the database.
+     *
+     * @param id the account id.
+     * @return the number of messages posted by the account.
+     */
+    public long getMessageCountByAccountID(int id) {
+        return accountMessageCounters.get(id);
+    }
+
+
+     /**
+     * @return per-account statistics of the coalesced account message reads.
+     */
+    public Map<Integer, KeyStats> getAccountMessagesReadStats() {
+        return accountMessagesFlight.getAllStats();
+    }
+
+
      /**
      * The deletion of an existing message should remove an existing message from the database.
      * 
+     * A DELETED event is written to the outbox in the same transaction. Caches, versions and counters are
+     * updated only once the delete has committed.
+     * 
      * @param id the message_id of the message to be deleted
      */
+    @Transactional
     public int deleteMessage(int id) {
         // if the message to be deleted exists delete it and return 1 representing the row affected
-        if (messageRepository.existsById(id)) {
-            messageRepository.deleteById(id);
+        Message messageToDelete = messageStore.findByMessageId(id);
+        if (messageToDelete != null) {
+            messageStore.deleteById(id);
+            messageOutbox.record(MessageOutbox.DELETED, messageToDelete);
+            messageStatsService.beforeChange(messageToDelete.getPostedBy(), messageToDelete.getMessageText());
+            afterCommit(() -> {
+                messageCache.onDeleted(messageToDelete);
+                messageJsonCache.evict(id);
+                if (messageToDelete.getPostedBy() != null) {
+                    postedByIndex.remove(messageToDelete.getPostedBy(), id);
+                }
+                forgetInFlightReads(id, messageToDelete.getPostedBy());
+                messageVersionTracker.bump(messageToDelete.getPostedBy());
+                messageStatsService.onMessageDeleted(messageToDelete);
+                if (messageToDelete.getPostedBy() != null) {
+                    accountMessageCounters.decrement(messageToDelete.getPostedBy());
+                }
+                feedService.onMessageDeleted(messageToDelete);
+            });
             return 1;
         }
         return 0; // the message doesnt exist return 0
@@ -69,19 +216,36 @@ public class MessageService {
      * The creation of the message will be successful if and only if the message_text is not blank, 
      * is under 255 characters, and posted_by refers to a real, existing user. 
      * 
+     * The message is checked with WriteValidators.CREATE_MESSAGE before anything is read from the database.
+     * 
+     * A CREATED event is written to the outbox in the same transaction. Versions and counters are updated
+     * only once the insert has committed.
+     * 
      * @return Message returns newly inserted message object
      * @param message the message object to be inserted into the database
      */
+    @Transactional
     public Message createMessage(Message message) {
+        if (!WriteValidators.CREATE_MESSAGE.validate(message).isValid()) {
+            return null; // the text or postedBy does not meet the requirements
+        }
         // store all messages to make sure user exists for new message
-        List<Message> messages = messageRepository.findAll();
+        List<Message> messages = messageStore.findAll();
         for (Message mess : messages) {
-            if (mess.getPostedBy().equals(message.getPostedBy()) ) { // check if user exists
-                if(message.getMessageText().length() > 0 && message.getMessageText().length() < 255) { // check for correct requirements
-                    return messageRepository.save(message); // insert the message
-                } else {
-                    return null; // requirements are valid
-                }
+            if (message.getPostedBy().equals(mess.getPostedBy())) { // check if user exists
+                Message savedMessage = messageStore.save(message); // insert the message
+                messageOutbox.record(MessageOutbox.CREATED, savedMessage);
+                messageStatsService.beforeChange(savedMessage.getPostedBy(), savedMessage.getMessageText());
+                afterCommit(() -> {
+                    messageCache.onCreated(savedMessage);
+                    postedByIndex.add(savedMessage.getPostedBy(), savedMessage.getMessageId());
+                    forgetInFlightReads(savedMessage.getMessageId(), savedMessage.getPostedBy());
+                    messageVersionTracker.bump(savedMessage.getPostedBy());
+                    messageStatsService.onMessageCreated(savedMessage);
+                    accountMessageCounters.increment(savedMessage.getPostedBy());
+                    feedService.onMessageCreated(savedMessage);
+                });
+                return savedMessage;
             }
         }
         return null; // the user doesnt exist
@@ -93,25 +257,105 @@ public class MessageService {
      * successful if and only if the message id already exists and the new message_text is not blank 
      * and is not over 255 characters.
      *
+     * The new text is checked with WriteValidators.UPDATE_MESSAGE before the message is looked up.
+     *
+     * An UPDATED event is written to the outbox in the same transaction. Caches, versions and stats are
+     * updated only once the update has committed.
+     *
      * @param id a message ID.
      * @param message a message object. the message object does not contain a flight ID.
      */
-
+    @Transactional
     public int updateMessage(int id, Message message) {
+        if (!WriteValidators.UPDATE_MESSAGE.validate(message).isValid()) {
+            return 0; // cant update message: the new text is empty or too long
+        }
         // message that needs to be updated
-        Message messageToUpdate = messageRepository.findByMessageId(id);
-        // if it exists
+        Message messageToUpdate = messageStore.findByMessageId(id);
+        // if it exists update the message text of the message to be updated
         if (messageToUpdate != null) {
-            if(message.getMessageText().length() == 0) { // check if the message being passed in is not empty
-                return 0; // cant update message
-            } else if (message.getMessageText().length() > 255) { // check if the message isnt too long
-                return 0; // cant update message
-            } else { // otherwise update the message text of the message to be updated
-                messageToUpdate.setMessageText(message.getMessageText()); 
-                messageRepository.save(messageToUpdate); // then save(insert) the message
-                return 1; // return the number of rows affected;
-            }
+            String oldText = messageToUpdate.getMessageText();
+            messageToUpdate.setMessageText(message.getMessageText()); 
+            messageStore.save(messageToUpdate); // then save(insert) the message
+            messageOutbox.record(MessageOutbox.UPDATED, messageToUpdate);
+            messageStatsService.beforeChange(null, oldText, messageToUpdate.getMessageText());
+            afterCommit(() -> {
+                messageCache.onUpdated(messageToUpdate); // before evicting the JSON, so a reload sees the new text
+                messageJsonCache.evict(id);
+                forgetInFlightReads(id, messageToUpdate.getPostedBy());
+                messageVersionTracker.bump(messageToUpdate.getPostedBy());
+                messageStatsService.onMessageUpdated(oldText, messageToUpdate.getMessageText());
+            });
+            return 1; // return the number of rows affected;
         }
         return 0; // the message to update doesnt exist
     }
+
+
+    private void onRemoteChange(CacheInvalidation invalidation) {
+        int id = invalidation.getMessageId();
+        messageJsonCache.evict(id);
+        if (invalidation.getPostedBy() != null) {
+            // the feed buffers of this node follow the other node's fan-out
+            Message changed = new Message(id, invalidation.getPostedBy(), null, null);
+            if (invalidation.getType() == CacheInvalidation.Type.CREATED) {
+                postedByIndex.add(invalidation.getPostedBy(), id);
+                feedService.onMessageCreated(changed);
+            } else if (invalidation.getType() == CacheInvalidation.Type.DELETED) {
+                postedByIndex.remove(invalidation.getPostedBy(), id);
+                feedService.onMessageDeleted(changed);
+            }
+        }
+        forgetInFlightReads(id, invalidation.getPostedBy());
+        messageVersionTracker.bump(invalidation.getPostedBy());
+    }
+
+
+    // reads already in flight may have started before the change to this message committed
+    private void forgetInFlightReads(int id, Integer postedBy) {
+        messageFlight.forget(id);
+        allMessagesFlight.forget(Boolean.TRUE);
+        if (postedBy != null) {
+            accountMessagesFlight.forget(postedBy);
+        }
+    }
+
+
+    // messages with the given ascending ids, from the hot set where possible
+    private List<Message> loadMessages(int[] ids) {
+        List<Message> messages = new ArrayList<>(ids.length);
+        int[] missing = new int[ids.length];
+        int missingCount = 0;
+        for (int id : ids) {
+            Message resident = messageHotSet.get(id);
+            if (resident != null) {
+                messages.add(resident);
+            } else {
+                missing[missingCount++] = id;
+            }
+        }
+        if (missingCount > 0) {
+            messages.addAll(messageStore.findByMessageIdIn(Arrays.copyOf(missing, missingCount)));
+            messages.sort(Comparator.comparing(Message::getMessageId));
+        }
+        return messages;
+    }
+
+
+    /**
+     * Run a side effect once the current transaction commits, or right away if there is no transaction.
+     * Nothing runs if the transaction rolls back.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 }
@@ -0,0 +1,318 @@
+package com.example.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.entity.Message;
+import com.example.repository.MessageReadRepository;
+import com.example.stats.AccountMessageStats;
+import com.example.stats.MessageStats;
+import com.example.stats.TextLengthHistogramTask;
+
+@Service
+public class MessageStatsService {
+    private static final Logger logger = LoggerFactory.getLogger(MessageStatsService.class);
+    // texts of this length or longer share the last histogram slot
+    private static final int MAX_TRACKED_LENGTH = 256;
+    private static final int BUCKET_WIDTH = 32;
+
+    @Autowired
+    private MessageReadRepository messageReadRepository;
+
+    private volatile State state;
+    // changes announced by beforeChange whose transaction has not completed, by account and by histogram slot
+    private final ConcurrentHashMap<Integer, Integer> pendingAccounts = new ConcurrentHashMap<>();
+    private final AtomicIntegerArray pendingSlots = new AtomicIntegerArray(MAX_TRACKED_LENGTH + 1);
+    // accounts to re-aggregate once no change of theirs is pending
+    private final Set<Integer> staleAccounts = ConcurrentHashMap.newKeySet();
+    // the scans running now; each collects what changed while it ran
+    private final Set<Changes> scans = ConcurrentHashMap.newKeySet();
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "message-stats-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Compute every statistic from the database: per-account counts and post times are aggregated in the 
+     * database, and the text length histogram is built by a fork/join pass over the streamed lengths.
+     * Runs at startup and again each time StatsReconciliationJob reconciles; in between, the MessageService
+     * write paths keep the stats current.
+     *
+     * The first run installs the result. Later runs correct the live stats in place, leaving alone what a
+     * change may have touched while the database was scanned, since the scan may or may not include that
+     * change: a change counts from beforeChange, inside its transaction, until the transaction completes,
+     * after its on* call. Accounts and histogram slots it touched keep their live values and are corrected
+     * by the next run.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        Changes changed = startScan();
+        try {
+            Map<Integer, AccountMessageStats> accounts = new HashMap<>();
+            for (AccountMessageStats stats : messageReadRepository.aggregateByPostedBy()) {
+                accounts.put(stats.getAccountId(), stats);
+            }
+
+            IntStream.Builder lengthsBuilder = IntStream.builder();
+            messageReadRepository.streamTextLengths(lengthsBuilder);
+            int[] lengths = lengthsBuilder.build().toArray();
+            long[] counts = ForkJoinPool.commonPool()
+                    .invoke(new TextLengthHistogramTask(lengths, 0, lengths.length, MAX_TRACKED_LENGTH));
+
+            State current = state;
+            if (current == null) {
+                State fresh = new State();
+                fresh.accounts.putAll(accounts);
+                for (int i = 0; i < counts.length; i++) {
+                    fresh.lengthCounts.set(i, counts[i]);
+                }
+                state = fresh;
+                return;
+            }
+            for (Map.Entry<Integer, AccountMessageStats> account : accounts.entrySet()) {
+                current.accounts.compute(account.getKey(),
+                        (accountId, live) -> changed.accounts.contains(accountId) ? live : account.getValue());
+            }
+            for (Integer accountId : current.accounts.keySet()) {
+                if (!accounts.containsKey(accountId)) {
+                    current.accounts.computeIfPresent(accountId,
+                            (id, live) -> changed.accounts.contains(id) ? live : null);
+                }
+            }
+            for (int i = 0; i < counts.length; i++) {
+                if (changed.slots.get(i) == 0) {
+                    // by the difference, so an update of another slot landing meanwhile is kept
+                    current.lengthCounts.addAndGet(i, counts[i] - current.lengthCounts.get(i));
+                }
+            }
+        } finally {
+            scans.remove(changed);
+        }
+    }
+
+    /**
+     * Announce a message change inside its transaction, before it commits. Until the transaction completes,
+     * rebuilds leave the account and the histogram slots of the texts alone. The matching on* call follows
+     * once the change commits.
+     *
+     * @param postedBy the account of the message, may be null.
+     * @param texts the texts the change removes or adds.
+     */
+    public void beforeChange(Integer postedBy, String... texts) {
+        int[] slots = new int[texts.length];
+        for (int i = 0; i < texts.length; i++) {
+            slots[i] = slot(texts[i]);
+        }
+        boolean pending = TransactionSynchronizationManager.isSynchronizationActive();
+        if (pending) {
+            if (postedBy != null) {
+                pendingAccounts.merge(postedBy, 1, Integer::sum);
+            }
+            for (int slot : slots) {
+                pendingSlots.incrementAndGet(slot);
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (postedBy != null) {
+                        pendingAccounts.computeIfPresent(postedBy, (accountId, count) -> count == 1 ? null : count - 1);
+                    }
+                    for (int slot : slots) {
+                        pendingSlots.decrementAndGet(slot);
+                    }
+                    if (postedBy != null) {
+                        refreshIfStale(postedBy);
+                    }
+                }
+            });
+        }
+        // after counting it as pending, so a scan starting meanwhile sees it one way or the other
+        for (Changes changed : scans) {
+            changed.add(postedBy, slots);
+        }
+    }
+
+    /**
+     * @return site-wide message statistics.
+     */
+    public MessageStats getMessageStats() {
+        State current = currentState();
+        long[] counts = new long[MAX_TRACKED_LENGTH + 1];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = current.lengthCounts.get(i);
+            total += counts[i];
+        }
+        return new MessageStats(total, current.accounts.size(), counts, BUCKET_WIDTH);
+    }
+
+    /**
+     * @return statistics of every account that has posted, ordered by account id.
+     */
+    public List<AccountMessageStats> getAccountStats() {
+        List<AccountMessageStats> stats = new ArrayList<>(currentState().accounts.values());
+        stats.sort(Comparator.comparing(AccountMessageStats::getAccountId));
+        return stats;
+    }
+
+    /**
+     * Record a message that was just inserted.
+     *
+     * @param message the saved message.
+     */
+    public void onMessageCreated(Message message) {
+        State current = currentState();
+        current.lengthCounts.incrementAndGet(slot(message.getMessageText()));
+        if (message.getPostedBy() != null) {
+            current.accounts.compute(message.getPostedBy(), (accountId, stats) -> stats == null
+                    ? new AccountMessageStats(accountId, 0, null, null).plus(message.getTimePostedEpoch())
+                    : stats.plus(message.getTimePostedEpoch()));
+        }
+    }
+
+    /**
+     * Record a change of message text.
+     *
+     * @param oldText the text before the update.
+     * @param newText the text after the update.
+     */
+    public void onMessageUpdated(String oldText, String newText) {
+        State current = currentState();
+        current.lengthCounts.decrementAndGet(slot(oldText));
+        current.lengthCounts.incrementAndGet(slot(newText));
+    }
+
+    /**
+     * Record a message that was just deleted. If it was the account's first or last post, only that 
+     * account is re-aggregated in the database, in the background once its transaction has completed.
+     *
+     * @param message the deleted message.
+     */
+    public void onMessageDeleted(Message message) {
+        State current = currentState();
+        current.lengthCounts.decrementAndGet(slot(message.getMessageText()));
+        Integer postedBy = message.getPostedBy();
+        if (postedBy == null) {
+            return;
+        }
+        Long time = message.getTimePostedEpoch();
+        boolean[] boundaryRemoved = {false};
+        current.accounts.computeIfPresent(postedBy, (accountId, stats) -> {
+            if (stats.getMessageCount() <= 1) {
+                return null;
+            }
+            if (time != null && (time.equals(stats.getFirstPostedEpoch()) || time.equals(stats.getLastPostedEpoch()))) {
+                boundaryRemoved[0] = true;
+            }
+            return new AccountMessageStats(accountId, stats.getMessageCount() - 1,
+                    stats.getFirstPostedEpoch(), stats.getLastPostedEpoch());
+        });
+        if (boundaryRemoved[0]) {
+            staleAccounts.add(postedBy);
+            if (!pendingAccounts.containsKey(postedBy)) {
+                refreshIfStale(postedBy);
+            }
+        }
+    }
+
+    private State currentState() {
+        State current = state;
+        if (current == null) {
+            rebuild();
+            current = state;
+        }
+        return current;
+    }
+
+    private Changes startScan() {
+        Changes changed = new Changes();
+        scans.add(changed);
+        // changes announced before the scan started that have not completed yet
+        for (Integer accountId : pendingAccounts.keySet()) {
+            changed.add(accountId, new int[0]);
+        }
+        for (int i = 0; i < pendingSlots.length(); i++) {
+            if (pendingSlots.get(i) > 0) {
+                changed.slots.set(i, 1);
+            }
+        }
+        return changed;
+    }
+
+    private void refreshIfStale(int accountId) {
+        if (staleAccounts.remove(accountId)) {
+            refresher.execute(() -> refreshAccount(accountId));
+        }
+    }
+
+    // re-aggregate one account whose first or last post was deleted, unless it changes meanwhile
+    private void refreshAccount(int accountId) {
+        Changes changed = startScan();
+        try {
+            AccountMessageStats fresh = messageReadRepository.aggregateForPostedBy(accountId);
+            if (!changed.accounts.contains(accountId)) {
+                State current = state;
+                if (fresh == null) {
+                    current.accounts.remove(accountId);
+                } else {
+                    current.accounts.put(accountId, fresh);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not refresh the message stats of account {}; the next rebuild will", accountId, e);
+        } finally {
+            scans.remove(changed);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdown();
+    }
+
+    private static int slot(String text) {
+        return text == null ? 0 : Math.min(text.length(), MAX_TRACKED_LENGTH);
+    }
+
+    private static class State {
+        private final ConcurrentHashMap<Integer, AccountMessageStats> accounts = new ConcurrentHashMap<>();
+        private final AtomicLongArray lengthCounts = new AtomicLongArray(MAX_TRACKED_LENGTH + 1);
+    }
+
+    private static class Changes {
+        private final Set<Integer> accounts = ConcurrentHashMap.newKeySet();
+        private final AtomicIntegerArray slots = new AtomicIntegerArray(MAX_TRACKED_LENGTH + 1);
+
+        void add(Integer postedBy, int[] changedSlots) {
+            if (postedBy != null) {
+                accounts.add(postedBy);
+            }
+            for (int slot : changedSlots) {
+                slots.set(slot, 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.stats;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Number of messages posted by each account, one LongAdder per account.
+ *
+ * LongAdder stripes its count across cells, so many threads posting for the same busy account do not
+ * contend on a single atomic. Reading a count is one map lookup plus a sum over the cells. MessageService
+ * updates the counters after its create and delete transactions commit, and a scheduled job reconciles
+ * them with the database.
+ */
+@Component
+public class AccountMessageCounters {
+
+    private final ConcurrentHashMap<Integer, LongAdder> counters = new ConcurrentHashMap<>();
+    // accounts changed since the running reconciliation queried the database, null when none is running
+    private volatile Set<Integer> changedDuringReconcile;
+
+    /**
+     * @param accountId the account id.
+     * @return the number of messages the account has posted.
+     */
+    public long get(int accountId) {
+        LongAdder counter = counters.get(accountId);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * @param accountId the account id.
+     */
+    public void increment(int accountId) {
+        markChanged(accountId);
+        counters.computeIfAbsent(accountId, id -> new LongAdder()).increment();
+    }
+
+    /**
+     * @param accountId the account id.
+     */
+    public void decrement(int accountId) {
+        markChanged(accountId);
+        counters.computeIfAbsent(accountId, id -> new LongAdder()).decrement();
+    }
+
+    /**
+     * Correct every counter to the counts found in the database. Counters are adjusted by the difference
+     * rather than reset, and an account that changed while the counts were queried is left alone: the
+     * snapshot may or may not include that change, so the next reconciliation corrects it instead.
+     *
+     * @param actualCounts queries the message count per account in the database.
+     * @return the number of counters that had drifted.
+     */
+    public synchronized int reconcile(Supplier<Map<Integer, Long>> actualCounts) {
+        Set<Integer> changed = ConcurrentHashMap.newKeySet();
+        changedDuringReconcile = changed;
+        try {
+            Map<Integer, Long> actual = actualCounts.get();
+            int drifted = 0;
+            for (Map.Entry<Integer, Long> count : actual.entrySet()) {
+                if (correct(count.getKey(), count.getValue(), changed)) {
+                    drifted++;
+                }
+            }
+            for (Integer accountId : counters.keySet()) {
+                if (!actual.containsKey(accountId) && correct(accountId, 0, changed)) {
+                    drifted++;
+                }
+            }
+            return drifted;
+        } finally {
+            changedDuringReconcile = null;
+        }
+    }
+
+    // changes are marked before they are applied, so one that lands while a correction is made is seen
+    // afterwards and the correction is taken back
+    private boolean correct(int accountId, long actual, Set<Integer> changed) {
+        if (changed.contains(accountId)) {
+            return false;
+        }
+        LongAdder counter = counters.computeIfAbsent(accountId, id -> new LongAdder());
+        long delta = actual - counter.sum();
+        if (delta == 0) {
+            return false;
+        }
+        counter.add(delta);
+        if (changed.contains(accountId)) {
+            counter.add(-delta);
+            return false;
+        }
+        return true;
+    }
+
+    private void markChanged(int accountId) {
+        Set<Integer> changed = changedDuringReconcile;
+        if (changed != null) {
+            changed.add(accountId);
+        }
+    }
+}
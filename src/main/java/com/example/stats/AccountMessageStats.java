@@ -0,0 +1,61 @@
+package com.example.stats;
+
+/**
+ * Immutable message statistics of one posting account.
+ */
+public class AccountMessageStats {
+
+    private static final double SECONDS_PER_DAY = 86400.0;
+
+    private final Integer accountId;
+    private final long messageCount;
+    private final Long firstPostedEpoch;
+    private final Long lastPostedEpoch;
+
+    public AccountMessageStats(Integer accountId, long messageCount, Long firstPostedEpoch, Long lastPostedEpoch) {
+        this.accountId = accountId;
+        this.messageCount = messageCount;
+        this.firstPostedEpoch = firstPostedEpoch;
+        this.lastPostedEpoch = lastPostedEpoch;
+    }
+
+    public Integer getAccountId() {
+        return accountId;
+    }
+
+    public long getMessageCount() {
+        return messageCount;
+    }
+
+    public Long getFirstPostedEpoch() {
+        return firstPostedEpoch;
+    }
+
+    public Long getLastPostedEpoch() {
+        return lastPostedEpoch;
+    }
+
+    /**
+     * @return messages per day between the first and last post, or the message count if they were posted
+     *         within the same second.
+     */
+    public double getPostsPerDay() {
+        if (firstPostedEpoch == null || lastPostedEpoch == null || lastPostedEpoch <= firstPostedEpoch) {
+            return messageCount;
+        }
+        return messageCount / ((lastPostedEpoch - firstPostedEpoch) / SECONDS_PER_DAY);
+    }
+
+    /**
+     * @param timePostedEpoch the post time of a new message, may be null.
+     * @return these stats with one more message.
+     */
+    public AccountMessageStats plus(Long timePostedEpoch) {
+        if (timePostedEpoch == null) {
+            return new AccountMessageStats(accountId, messageCount + 1, firstPostedEpoch, lastPostedEpoch);
+        }
+        return new AccountMessageStats(accountId, messageCount + 1,
+                firstPostedEpoch == null ? timePostedEpoch : Math.min(firstPostedEpoch, timePostedEpoch),
+                lastPostedEpoch == null ? timePostedEpoch : Math.max(lastPostedEpoch, timePostedEpoch));
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.stats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Snapshot of the site-wide message statistics served by GET /stats/messages.
+ */
+public class MessageStats {
+
+    private final long totalMessages;
+    private final int postingAccounts;
+    private final Integer minTextLength;
+    private final Integer maxTextLength;
+    private final double meanTextLength;
+    private final Map<String, Long> textLengthHistogram;
+
+    /**
+     * @param totalMessages number of messages.
+     * @param postingAccounts number of accounts with at least one message.
+     * @param lengthCounts number of messages per text length; the last slot also holds longer texts.
+     * @param bucketWidth width of the histogram buckets reported to clients.
+     */
+    public MessageStats(long totalMessages, int postingAccounts, long[] lengthCounts, int bucketWidth) {
+        this.totalMessages = totalMessages;
+        this.postingAccounts = postingAccounts;
+        Integer min = null;
+        Integer max = null;
+        long count = 0;
+        long sum = 0;
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        int last = lengthCounts.length - 1;
+        for (int length = 0; length <= last; length++) {
+            long n = lengthCounts[length];
+            if (n == 0) {
+                continue;
+            }
+            if (min == null) {
+                min = length;
+            }
+            max = length;
+            count += n;
+            sum += n * length;
+            int bucketStart = length / bucketWidth * bucketWidth;
+            String bucket = length == last ? last + "+" : bucketStart + "-" + Math.min(bucketStart + bucketWidth - 1, last - 1);
+            histogram.merge(bucket, n, Long::sum);
+        }
+        this.minTextLength = min;
+        this.maxTextLength = max;
+        this.meanTextLength = count == 0 ? 0 : (double) sum / count;
+        this.textLengthHistogram = histogram;
+    }
+
+    public long getTotalMessages() {
+        return totalMessages;
+    }
+
+    public int getPostingAccounts() {
+        return postingAccounts;
+    }
+
+    public Integer getMinTextLength() {
+        return minTextLength;
+    }
+
+    public Integer getMaxTextLength() {
+        return maxTextLength;
+    }
+
+    public double getMeanTextLength() {
+        return meanTextLength;
+    }
+
+    public Map<String, Long> getTextLengthHistogram() {
+        return textLengthHistogram;
+    }
+}
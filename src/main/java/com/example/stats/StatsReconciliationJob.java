@@ -0,0 +1,65 @@
+package com.example.stats;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.repository.MessageReadRepository;
+import com.example.service.MessageStatsService;
+
+/**
+ * Loads the per-account message counters at startup and periodically reconciles them, and the message
+ * statistics, with the counts in the database. Incremental updates can drift, for instance when a process
+ * dies between commit and update; this puts them right again without losing the updates made meanwhile.
+ */
+@Component
+@Lazy(false)
+public class StatsReconciliationJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatsReconciliationJob.class);
+
+    private MessageReadRepository messageReadRepository;
+    private AccountMessageCounters accountMessageCounters;
+    private MessageStatsService messageStatsService;
+
+    @Autowired
+    public StatsReconciliationJob(MessageReadRepository messageReadRepository,
+            AccountMessageCounters accountMessageCounters, MessageStatsService messageStatsService) {
+        this.messageReadRepository = messageReadRepository;
+        this.accountMessageCounters = accountMessageCounters;
+        this.messageStatsService = messageStatsService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadCounters() {
+        reconcileCounters();
+    }
+
+    @Scheduled(initialDelayString = "${app.stats.reconcile-interval-millis:300000}",
+            fixedDelayString = "${app.stats.reconcile-interval-millis:300000}")
+    public void reconcile() {
+        int drifted = reconcileCounters();
+        if (drifted > 0) {
+            logger.warn("Reconciled {} drifted account message counters", drifted);
+        }
+        messageStatsService.rebuild();
+    }
+
+    private int reconcileCounters() {
+        return accountMessageCounters.reconcile(() -> {
+            Map<Integer, Long> actualCounts = new HashMap<>();
+            for (AccountMessageStats stats : messageReadRepository.aggregateByPostedBy()) {
+                actualCounts.put(stats.getAccountId(), stats.getMessageCount());
+            }
+            return actualCounts;
+        });
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.stats;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork/join pass that counts message text lengths.
+ *
+ * The result has one slot per length from 0 to maxLength; longer texts are counted in the last slot.
+ * Ranges below the threshold are counted sequentially and the partial arrays are summed on the way up.
+ */
+public class TextLengthHistogramTask extends RecursiveTask<long[]> {
+
+    private static final int THRESHOLD = 8192;
+
+    private final int[] lengths;
+    private final int from;
+    private final int to;
+    private final int maxLength;
+
+    public TextLengthHistogramTask(int[] lengths, int from, int to, int maxLength) {
+        this.lengths = lengths;
+        this.from = from;
+        this.to = to;
+        this.maxLength = maxLength;
+    }
+
+    @Override
+    protected long[] compute() {
+        if (to - from <= THRESHOLD) {
+            long[] counts = new long[maxLength + 1];
+            for (int i = from; i < to; i++) {
+                counts[Math.min(lengths[i], maxLength)]++;
+            }
+            return counts;
+        }
+        int middle = (from + to) >>> 1;
+        TextLengthHistogramTask left = new TextLengthHistogramTask(lengths, from, middle, maxLength);
+        left.fork();
+        long[] counts = new TextLengthHistogramTask(lengths, middle, to, maxLength).compute();
+        long[] leftCounts = left.join();
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += leftCounts[i];
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.store;
+
+/**
+ * Receives a pair of ints without boxing them.
+ */
+@FunctionalInterface
+public interface IntIntConsumer {
+
+    void accept(int first, int second);
+}
@@ -0,0 +1,158 @@
+package com.example.store;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from int keys to long values, stored in two primitive arrays.
+ *
+ * Uses linear probing with backward-shift deletion, so there are no tombstones and no boxing. Not thread
+ * safe; callers synchronize.
+ */
+public class IntLongHashMap {
+
+    private static final int EMPTY = Integer.MIN_VALUE;
+    private static final long NO_VALUE = -1L;
+
+    private int[] keys;
+    private long[] values;
+    private int size;
+    private int mask;
+
+    public IntLongHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * @param key the key; must not be Integer.MIN_VALUE.
+     * @return the value, or -1 if the key is absent.
+     */
+    public long get(int key) {
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == key) {
+                return values[i];
+            }
+            if (k == EMPTY) {
+                return NO_VALUE;
+            }
+        }
+    }
+
+    /**
+     * @param key the key; must not be Integer.MIN_VALUE.
+     * @param value the value; must not be negative.
+     */
+    public void put(int key, long value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Key " + key + " is reserved");
+        }
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == key) {
+                values[i] = value;
+                return;
+            }
+            if (k == EMPTY) {
+                keys[i] = key;
+                values[i] = value;
+                if (++size * 2 > keys.length) {
+                    rehash(keys.length * 2);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param key the key.
+     * @return the removed value, or -1 if the key was absent.
+     */
+    public long remove(int key) {
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == EMPTY) {
+                return NO_VALUE;
+            }
+            if (k == key) {
+                long removed = values[i];
+                shiftBack(i);
+                size--;
+                return removed;
+            }
+        }
+    }
+
+    /**
+     * @return the number of keys.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return every key, in no particular order.
+     */
+    public int[] keys() {
+        int[] result = new int[size];
+        int n = 0;
+        for (int key : keys) {
+            if (key != EMPTY) {
+                result[n++] = key;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Remove every key.
+     */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    // close the gap at index so later probes still find displaced keys
+    private void shiftBack(int gap) {
+        int i = gap;
+        while (true) {
+            i = (i + 1) & mask;
+            int k = keys[i];
+            if (k == EMPTY) {
+                break;
+            }
+            int home = slot(k);
+            // move k into the gap unless its home lies cyclically in (gap, i]
+            if (gap <= i ? (home <= gap || home > i) : (home <= gap && home > i)) {
+                keys[gap] = k;
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        keys[gap] = EMPTY;
+    }
+
+    private int slot(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.store;
+
+import java.util.List;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.example.entity.Message;
+import com.example.repository.MessageReadRepository;
+import com.example.repository.MessageRepository;
+
+/**
+ * Default MessageStore on top of the message table. Reads go through MessageReadRepository, writes through
+ * MessageRepository.
+ */
+@Component
+@Profile("!message-log")
+public class JpaMessageStore implements MessageStore {
+
+    private final MessageRepository messageRepository;
+    private final MessageReadRepository messageReadRepository;
+
+    public JpaMessageStore(MessageRepository messageRepository, MessageReadRepository messageReadRepository) {
+        this.messageRepository = messageRepository;
+        this.messageReadRepository = messageReadRepository;
+    }
+
+    @Override
+    public List<Message> findAll() {
+        return messageReadRepository.findAll();
+    }
+
+    @Override
+    public Message findByMessageId(int messageId) {
+        return messageReadRepository.findByMessageId(messageId);
+    }
+
+    @Override
+    public List<Message> findByPostedBy(int postedBy) {
+        return messageReadRepository.findByPostedBy(postedBy);
+    }
+
+    @Override
+    public List<Message> findByMessageIdIn(int[] messageIds) {
+        return messageReadRepository.findByMessageIdIn(messageIds);
+    }
+
+    @Override
+    public void streamPostedBy(IntIntConsumer consumer) {
+        messageReadRepository.streamPostedBy(consumer);
+    }
+
+    @Override
+    public Message save(Message message) {
+        return messageRepository.save(message);
+    }
+
+    @Override
+    public void deleteById(int messageId) {
+        messageRepository.deleteById(messageId);
+    }
+}
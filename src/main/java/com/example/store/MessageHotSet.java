@@ -0,0 +1,46 @@
+package com.example.store;
+
+import com.example.entity.Message;
+
+/**
+ * Store of recently written or read messages that MessageService consults before the database.
+ *
+ * Every write path calls put() or remove(), which advances getVersion(). A read path that loaded a message
+ * from the database hands it to putIfUnchanged() with the version it saw before loading, so a load that
+ * raced with a write never overwrites the newer state.
+ */
+public interface MessageHotSet {
+
+    /**
+     * @param messageId the message id.
+     * @return a copy of the stored message, or null if it is not resident.
+     */
+    Message get(int messageId);
+
+    /**
+     * Store a message from a write path.
+     *
+     * @param message the message; must have a messageId.
+     */
+    void put(Message message);
+
+    /**
+     * Store a message loaded by a read path, unless any write happened since the load started.
+     *
+     * @param message the message; must have a messageId.
+     * @param versionBeforeLoad the value of getVersion() taken before the load.
+     */
+    void putIfUnchanged(Message message, long versionBeforeLoad);
+
+    /**
+     * Drop a message, e.g. after it was deleted.
+     *
+     * @param messageId the message id.
+     */
+    void remove(int messageId);
+
+    /**
+     * @return a counter advanced by every put() and remove().
+     */
+    long getVersion();
+}
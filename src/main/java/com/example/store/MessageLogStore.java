@@ -0,0 +1,635 @@
+package com.example.store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.entity.Message;
+import com.example.repository.MessageReadRepository;
+
+/**
+ * MessageStore that appends every change to a segmented, memory-mapped log on disk.
+ *
+ * Each segment is a file of segment-bytes mapped in full. Records are written one after another:
+ *
+ * <pre>
+ *   0  int   body length
+ *   4  int   CRC32 of the body
+ *   8  byte  type: 1 = put, 2 = delete, 3 = id reservation
+ *   9  byte  flags: 1 = postedBy is null, 2 = timePostedEpoch is null, 4 = messageText is null,
+ *              8 = text is compressed
+ *  10  int   messageId
+ *  14  int   postedBy; in a delete, the number of the segment that held the latest put
+ *  18  long  timePostedEpoch
+ *  26  int   text length in bytes
+ *  30  byte[] text, UTF-8, or encoded by the TextCodec if flag 8 is set
+ * </pre>
+ *
+ * A save appends a put record and a delete appends a delete record; nothing is modified in place. The body
+ * is written before its length, and a zero length ends a segment, so a record is either fully visible or
+ * not at all. On startup every segment is replayed in order to rebuild the indexes. Replay of the newest
+ * segment stops at the first record that is truncated or fails its CRC, and everything after it is zeroed.
+ * That tail is what a crash in the middle of a write leaves behind.
+ *
+ * The messageId index maps each live message to the location of its latest put record. A PostedByIndex
+ * maps each account to its message ids. Both live on the heap and are rebuilt from the log.
+ *
+ * Whenever the active segment fills up, a new one is started. Then the sealed segment with the smallest
+ * share of live bytes, if that is below compaction-threshold, is compacted: its live puts are copied to the
+ * head of the log and the file is deleted. A delete record is copied unless the segment is the oldest one:
+ * earlier puts of the message, superseded by updates, may still sit in any older segment, and replay would
+ * bring the message back without it. Ids are never reused, so once no older segment exists the delete has
+ * nothing left to hide. If the segment held a record of the highest id
+ * handed out and none is copied, an id reservation record takes its place, so replay never hands that id
+ * out again.
+ *
+ * Inside a Spring transaction, changes are held back and written just before it commits, so a transaction
+ * that rolls back leaves nothing in the log and the outbox event of a change commits with it. If the
+ * commit itself then fails, the previous state of each message is written back. A crash between the log
+ * write and the database commit can still keep a change whose event is lost.
+ *
+ * Writes reach the page cache, so they survive a crash of the process. sync-on-write also forces every
+ * write to disk, which is needed to survive a crash of the machine.
+ */
+@Component
+@Profile("message-log")
+public class MessageLogStore implements MessageStore {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageLogStore.class);
+
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int BODY_HEADER_BYTES = 22;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte RESERVE = 3;
+    private static final int POSTED_BY_NULL = 1;
+    private static final int EPOCH_NULL = 2;
+    private static final int TEXT_NULL = 4;
+    private static final int TEXT_COMPRESSED = 8;
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final double compactionThreshold;
+    private final boolean syncOnWrite;
+    private final MessageReadRepository seedSource;
+    private final TextInterner textInterner;
+    private final TextCodec textCodec;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    // messageId -> (segment number << 32 | offset) of its latest put record
+    private final IntLongHashMap locations = new IntLongHashMap(1024);
+    private final PostedByIndex postedByIndex = new PostedByIndex();
+    private Segment active;
+    private int nextMessageId = 1;
+    private boolean compacting;
+
+    @Autowired
+    public MessageLogStore(MessageReadRepository seedSource, TextInterner textInterner, TextCodec textCodec,
+            @Value("${app.store.message-log.directory:message-log}") String directory,
+            @Value("${app.store.message-log.segment-bytes:16777216}") int segmentBytes,
+            @Value("${app.store.message-log.compaction-threshold:0.5}") double compactionThreshold,
+            @Value("${app.store.message-log.sync-on-write:false}") boolean syncOnWrite) {
+        this(Paths.get(directory), segmentBytes, compactionThreshold, syncOnWrite, seedSource, textInterner,
+                textCodec);
+    }
+
+    public MessageLogStore(Path directory, int segmentBytes, double compactionThreshold, boolean syncOnWrite) {
+        this(directory, segmentBytes, compactionThreshold, syncOnWrite, TextCodec.NONE);
+    }
+
+    public MessageLogStore(Path directory, int segmentBytes, double compactionThreshold, boolean syncOnWrite,
+            TextCodec textCodec) {
+        this(directory, segmentBytes, compactionThreshold, syncOnWrite, null, TextInterner.DISABLED, textCodec);
+    }
+
+    private MessageLogStore(Path directory, int segmentBytes, double compactionThreshold, boolean syncOnWrite,
+            MessageReadRepository seedSource, TextInterner textInterner, TextCodec textCodec) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.compactionThreshold = compactionThreshold;
+        this.syncOnWrite = syncOnWrite;
+        this.seedSource = seedSource;
+        this.textInterner = textInterner;
+        this.textCodec = textCodec;
+        try {
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open message log in " + directory, e);
+        }
+    }
+
+    /**
+     * Copy the messages from the database into a log that has never been written, so the log starts with
+     * the same data as the default backend. Runs before every other ApplicationReadyEvent listener, so the
+     * ones that load from the store (such as MessageService's PostedByIndex) see the seeded messages.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void seed() {
+        if (seedSource == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (segments.size() > 1 || active.written > 0) {
+                return;
+            }
+            List<Message> messages = seedSource.findAll();
+            for (Message message : messages) {
+                append(PUT, message);
+            }
+            log.info("Seeded message log with {} messages from the database", messages.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Message> findAll() {
+        lock.readLock().lock();
+        try {
+            int[] ids = locations.keys();
+            Arrays.sort(ids);
+            List<Message> messages = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                messages.add(read(locations.get(id)));
+            }
+            return messages;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Message findByMessageId(int messageId) {
+        lock.readLock().lock();
+        try {
+            long location = locations.get(messageId);
+            return location < 0 ? null : read(location);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Message> findByPostedBy(int postedBy) {
+        lock.readLock().lock();
+        try {
+            int[] ids = postedByIndex.get(postedBy);
+            List<Message> messages = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                messages.add(read(locations.get(id)));
+            }
+            return messages;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Message> findByMessageIdIn(int[] messageIds) {
+        lock.readLock().lock();
+        try {
+            List<Message> messages = new ArrayList<>(messageIds.length);
+            for (int id : messageIds) {
+                long location = locations.get(id);
+                if (location >= 0) {
+                    messages.add(read(location));
+                }
+            }
+            return messages;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void streamPostedBy(IntIntConsumer consumer) {
+        List<Message> messages = findAll();
+        for (Message message : messages) {
+            if (message.getPostedBy() != null) {
+                consumer.accept(message.getPostedBy(), message.getMessageId());
+            }
+        }
+    }
+
+    @Override
+    public Message save(Message message) {
+        lock.writeLock().lock();
+        try {
+            Integer messageId = message.getMessageId() != null ? message.getMessageId() : nextMessageId++;
+            Message stored = new Message(messageId, message.getPostedBy(), message.getMessageText(),
+                    message.getTimePostedEpoch());
+            writeOnCommit(new Change(PUT, stored));
+            return stored;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteById(int messageId) {
+        lock.writeLock().lock();
+        try {
+            writeOnCommit(new Change(DELETE, new Message(messageId, null, null, null)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of segment files.
+     */
+    public int getSegmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            for (Segment segment : segments.values()) {
+                segment.buffer.force();
+                segment.channel.close();
+            }
+        } catch (IOException e) {
+            log.warn("Could not close message log", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        List<Integer> numbers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> numbers.add(Integer.parseInt(
+                            name.substring(0, name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        numbers.sort(null);
+        for (int i = 0; i < numbers.size(); i++) {
+            Segment segment = openSegment(numbers.get(i));
+            segments.put(segment.number, segment);
+            replay(segment, i == numbers.size() - 1);
+        }
+        if (segments.isEmpty()) {
+            Segment first = openSegment(0);
+            segments.put(first.number, first);
+        }
+        active = segments.lastEntry().getValue();
+        if (!numbers.isEmpty()) {
+            log.info("Recovered {} messages from {} message log segments", locations.size(), segments.size());
+        }
+    }
+
+    private void replay(Segment segment, boolean newest) {
+        ByteBuffer buffer = segment.buffer;
+        int offset = 0;
+        while (offset + RECORD_HEADER_BYTES <= segmentBytes) {
+            int bodyLength = buffer.getInt(offset);
+            if (bodyLength == 0) {
+                break;
+            }
+            if (bodyLength < BODY_HEADER_BYTES || offset + RECORD_HEADER_BYTES + bodyLength > segmentBytes
+                    || buffer.getInt(offset + 4) != crc(buffer, offset + RECORD_HEADER_BYTES, bodyLength)) {
+                log.warn("Message log segment {} is damaged at offset {}; ignoring the rest of it",
+                        segment.number, offset);
+                if (newest) {
+                    // a torn write; clear it so the next append starts on clean bytes
+                    for (int i = offset; i < segmentBytes; i++) {
+                        buffer.put(i, (byte) 0);
+                    }
+                }
+                break;
+            }
+            apply(location(segment.number, offset));
+            offset += RECORD_HEADER_BYTES + bodyLength;
+        }
+        segment.written = offset;
+    }
+
+    // write the change now, or just before the current transaction commits
+    private void writeOnCommit(Change change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            applyChange(change, false);
+            return;
+        }
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.changes.add(change);
+    }
+
+    // append a change and, if asked, return how to undo it; the write lock is held
+    private Change applyChange(Change change, boolean undoable) {
+        int messageId = change.message.getMessageId();
+        long previous = locations.get(messageId);
+        Change undo = !undoable ? null : previous >= 0 ? new Change(PUT, read(previous))
+                : new Change(DELETE, new Message(messageId, null, null, null));
+        if (change.type == PUT) {
+            append(PUT, change.message);
+        } else if (previous >= 0) {
+            append(DELETE, new Message(messageId, (int) (previous >>> 32), null, null));
+        }
+        return undo;
+    }
+
+    private void append(byte type, Message message) {
+        String text = message.getMessageText();
+        byte[] textBytes = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = textCodec.compress(textBytes);
+        if (compressed != null) {
+            textBytes = compressed;
+        }
+        int bodyLength = BODY_HEADER_BYTES + textBytes.length;
+        if (RECORD_HEADER_BYTES + bodyLength > segmentBytes) {
+            throw new IllegalArgumentException("Message " + message.getMessageId() + " does not fit in a segment");
+        }
+        ByteBuffer body = ByteBuffer.allocate(bodyLength);
+        body.put(type);
+        body.put((byte) ((message.getPostedBy() == null ? POSTED_BY_NULL : 0)
+                | (message.getTimePostedEpoch() == null ? EPOCH_NULL : 0)
+                | (text == null ? TEXT_NULL : 0)
+                | (compressed != null ? TEXT_COMPRESSED : 0)));
+        body.putInt(message.getMessageId());
+        body.putInt(message.getPostedBy() == null ? 0 : message.getPostedBy());
+        body.putLong(message.getTimePostedEpoch() == null ? 0 : message.getTimePostedEpoch());
+        body.putInt(textBytes.length);
+        body.put(textBytes);
+        apply(write(body.array()));
+    }
+
+    // write one record body at the head of the log and return its location
+    private long write(byte[] body) {
+        if (active.written + RECORD_HEADER_BYTES + body.length > segmentBytes) {
+            roll();
+        }
+        Segment segment = active;
+        int offset = segment.written;
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        ByteBuffer target = segment.buffer.duplicate();
+        target.position(offset + 4);
+        target.putInt((int) crc.getValue());
+        target.put(body);
+        segment.buffer.putInt(offset, body.length); // publish the record last
+        segment.written = offset + RECORD_HEADER_BYTES + body.length;
+        if (syncOnWrite) {
+            segment.buffer.force();
+        }
+        return location(segment.number, offset);
+    }
+
+    // update the indexes for the record at the given location
+    private void apply(long location) {
+        Segment segment = segments.get((int) (location >>> 32));
+        ByteBuffer buffer = segment.buffer;
+        int offset = (int) location;
+        int recordBytes = RECORD_HEADER_BYTES + buffer.getInt(offset);
+        byte type = buffer.get(offset + 8);
+        int messageId = buffer.getInt(offset + 10);
+        nextMessageId = Math.max(nextMessageId, messageId + 1);
+        if (type == RESERVE) {
+            return;
+        }
+
+        long previous = locations.get(messageId);
+        if (previous >= 0) {
+            Segment previousSegment = segments.get((int) (previous >>> 32));
+            int previousOffset = (int) previous;
+            previousSegment.live -= RECORD_HEADER_BYTES + previousSegment.buffer.getInt(previousOffset);
+            if ((previousSegment.buffer.get(previousOffset + 9) & POSTED_BY_NULL) == 0) {
+                postedByIndex.remove(previousSegment.buffer.getInt(previousOffset + 14), messageId);
+            }
+        }
+        if (type == DELETE) {
+            locations.remove(messageId);
+            return;
+        }
+        locations.put(messageId, location);
+        segment.live += recordBytes;
+        if ((buffer.get(offset + 9) & POSTED_BY_NULL) == 0) {
+            postedByIndex.add(buffer.getInt(offset + 14), messageId);
+        }
+    }
+
+    private void roll() {
+        Segment sealed = active;
+        sealed.buffer.force();
+        try {
+            active = openSegment(sealed.number + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start message log segment " + (sealed.number + 1), e);
+        }
+        segments.put(active.number, active);
+        if (compacting) {
+            return;
+        }
+        Segment emptiest = null;
+        for (Segment segment : segments.values()) {
+            if (segment != active && segment.live < segment.written * compactionThreshold
+                    && (emptiest == null || (double) segment.live / segment.written
+                            < (double) emptiest.live / emptiest.written)) {
+                emptiest = segment;
+            }
+        }
+        if (emptiest != null) {
+            compact(emptiest);
+        }
+    }
+
+    // copy the records of a segment that are still needed to the head of the log, then delete the segment
+    private void compact(Segment segment) {
+        compacting = true;
+        try {
+            boolean oldest = segments.firstKey() == segment.number;
+            int highestId = nextMessageId - 1;
+            boolean heldHighestId = false;
+            boolean movedHighestId = false;
+            int moved = 0;
+            int offset = 0;
+            while (offset < segment.written) {
+                int bodyLength = segment.buffer.getInt(offset);
+                byte type = segment.buffer.get(offset + 8);
+                int messageId = segment.buffer.getInt(offset + 10);
+                boolean keep;
+                if (type == PUT) {
+                    keep = locations.get(messageId) == location(segment.number, offset);
+                } else if (type == DELETE) {
+                    // any older segment may hold a superseded put of the message
+                    keep = !oldest;
+                } else {
+                    keep = false;
+                }
+                heldHighestId |= messageId == highestId;
+                if (keep) {
+                    byte[] body = new byte[bodyLength];
+                    ByteBuffer source = segment.buffer.duplicate();
+                    source.position(offset + RECORD_HEADER_BYTES);
+                    source.get(body);
+                    apply(write(body));
+                    movedHighestId |= messageId == highestId;
+                    moved++;
+                }
+                offset += RECORD_HEADER_BYTES + bodyLength;
+            }
+            if (heldHighestId && !movedHighestId) {
+                append(RESERVE, new Message(highestId, null, null, null));
+            }
+            active.buffer.force();
+            segments.remove(segment.number);
+            segment.channel.close();
+            Files.delete(segment.path);
+            log.info("Compacted message log segment {}: moved {} records", segment.number, moved);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not compact message log segment " + segment.number, e);
+        } finally {
+            compacting = false;
+        }
+    }
+
+    private Message read(long location) {
+        ByteBuffer buffer = segments.get((int) (location >>> 32)).buffer;
+        int offset = (int) location;
+        int flags = buffer.get(offset + 9);
+        Integer postedBy = (flags & POSTED_BY_NULL) != 0 ? null : buffer.getInt(offset + 14);
+        Long epoch = (flags & EPOCH_NULL) != 0 ? null : buffer.getLong(offset + 18);
+        int messageId = buffer.getInt(offset + 10);
+        String text = null;
+        if ((flags & TEXT_COMPRESSED) != 0) {
+            int textOffset = offset + RECORD_HEADER_BYTES + BODY_HEADER_BYTES;
+            text = textInterner.intern(messageId, textCodec.decompress(buffer, textOffset, buffer.getInt(offset + 26)));
+        } else if ((flags & TEXT_NULL) == 0) {
+            byte[] textBytes = new byte[buffer.getInt(offset + 26)];
+            ByteBuffer source = buffer.duplicate();
+            source.position(offset + RECORD_HEADER_BYTES + BODY_HEADER_BYTES);
+            source.get(textBytes);
+            text = textInterner.intern(messageId, new String(textBytes, StandardCharsets.UTF_8));
+        }
+        return new Message(messageId, postedBy, text, epoch);
+    }
+
+    private Segment openSegment(int number) throws IOException {
+        Path path = directory.resolve(String.format("%010d%s", number, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        return new Segment(number, path, channel, buffer);
+    }
+
+    private static int crc(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(offset);
+        slice.limit(offset + length);
+        CRC32 crc = new CRC32();
+        crc.update(slice);
+        return (int) crc.getValue();
+    }
+
+    private static long location(int segmentNumber, int offset) {
+        return ((long) segmentNumber << 32) | offset;
+    }
+
+    private static class Segment {
+        private final int number;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int written;
+        // bytes of put records that are still the latest version of their message
+        private long live;
+
+        private Segment(int number, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.number = number;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+
+    private static class Change {
+        private final byte type;
+        private final Message message;
+
+        private Change(byte type, Message message) {
+            this.type = type;
+            this.message = message;
+        }
+    }
+
+    // the changes of one transaction, written just before it commits and undone if the commit fails
+    private class PendingChanges implements TransactionSynchronization {
+        private final List<Change> changes = new ArrayList<>();
+        private final List<Change> undo = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            lock.writeLock().lock();
+            try {
+                for (Change change : changes) {
+                    undo.add(applyChange(change, true));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(MessageLogStore.this);
+            if (status != STATUS_ROLLED_BACK || undo.isEmpty()) {
+                return;
+            }
+            lock.writeLock().lock();
+            try {
+                for (int i = undo.size() - 1; i >= 0; i--) {
+                    applyChange(undo.get(i), false);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.warn("Undid {} message log writes of a transaction whose commit failed", undo.size());
+        }
+    }
+}
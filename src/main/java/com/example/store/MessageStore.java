@@ -0,0 +1,59 @@
+package com.example.store;
+
+import java.util.List;
+
+import com.example.entity.Message;
+
+/**
+ * Persistence operations MessageService needs for messages.
+ *
+ * JpaMessageStore backs them with the message table and is used by default. MessageLogStore keeps messages
+ * in a memory-mapped log instead and is used when the "message-log" profile is active.
+ */
+public interface MessageStore {
+
+    /**
+     * @return every message, ordered by messageId.
+     */
+    List<Message> findAll();
+
+    /**
+     * @param messageId the message id.
+     * @return the message, or null if there is none.
+     */
+    Message findByMessageId(int messageId);
+
+    /**
+     * @param postedBy the account id.
+     * @return every message posted by the account.
+     */
+    List<Message> findByPostedBy(int postedBy);
+
+    /**
+     * @param messageIds the message ids.
+     * @return the messages with the given ids, in no particular order. Ids without a message are skipped.
+     */
+    List<Message> findByMessageIdIn(int[] messageIds);
+
+    /**
+     * Stream the poster and id of every message that has a poster, without materializing the messages.
+     *
+     * @param consumer receives each postedBy and messageId.
+     */
+    void streamPostedBy(IntIntConsumer consumer);
+
+    /**
+     * Insert a message, or replace the stored message with the same messageId.
+     *
+     * @param message the message; a null messageId means a new message.
+     * @return the stored message, with its messageId assigned.
+     */
+    Message save(Message message);
+
+    /**
+     * Delete a message if it exists.
+     *
+     * @param messageId the message id.
+     */
+    void deleteById(int messageId);
+}
@@ -0,0 +1,223 @@
+package com.example.store;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.entity.Message;
+
+/**
+ * MessageHotSet kept outside the Java heap, in one direct ByteBuffer used as a circular log.
+ *
+ * Each message is appended as a fixed 24-byte header followed by its UTF-8 text, padded to 8 bytes:
+ *
+ * <pre>
+ *   0  int   messageId
+ *   4  int   postedBy
+ *   8  long  timePostedEpoch
+ *  16  int   text length in bytes, -1 for a null text
+ *  20  int   flags: 1 = postedBy is null, 2 = timePostedEpoch is null, 4 = text is compressed
+ *  24  byte[] text, UTF-8, or encoded by the TextCodec if flag 4 is set
+ * </pre>
+ *
+ * An IntLongHashMap maps each message id to the logical offset of its latest record. When the log is full the
+ * oldest records are reclaimed and their index entries dropped, so the store always holds the most recently
+ * written messages. An update appends a new record; the old one becomes garbage that is reclaimed in turn.
+ * The garbage collector only ever sees the buffer and the two index arrays, however many messages are held.
+ * Texts decoded on a read go through the TextInterner, so repeated texts handed out share one String.
+ */
+@Component
+public class OffHeapMessageStore implements MessageHotSet {
+
+    private static final int HEADER_BYTES = 24;
+    private static final int WRAP_MARKER = -1;
+    private static final int POSTED_BY_NULL = 1;
+    private static final int EPOCH_NULL = 2;
+    private static final int TEXT_COMPRESSED = 4;
+
+    private final ByteBuffer log;
+    private final int capacity;
+    private final IntLongHashMap index;
+    private final TextInterner textInterner;
+    private final TextCodec textCodec;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong version = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    // logical positions: physical offset = position % capacity
+    private long head;
+    private long tail;
+
+    public OffHeapMessageStore(int capacityBytes) {
+        this(capacityBytes, TextInterner.DISABLED, TextCodec.NONE);
+    }
+
+    @Autowired
+    public OffHeapMessageStore(@Value("${app.store.offheap.capacity-bytes:33554432}") int capacityBytes,
+            TextInterner textInterner, TextCodec textCodec) {
+        this.capacity = capacityBytes & ~7;
+        this.log = ByteBuffer.allocateDirect(capacity);
+        this.index = new IntLongHashMap(capacity / 128);
+        this.textInterner = textInterner;
+        this.textCodec = textCodec;
+    }
+
+    @Override
+    public Message get(int messageId) {
+        lock.readLock().lock();
+        try {
+            long position = index.get(messageId);
+            if (position < 0) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return read((int) (position % capacity));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void put(Message message) {
+        lock.writeLock().lock();
+        try {
+            version.incrementAndGet();
+            append(message);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void putIfUnchanged(Message message, long versionBeforeLoad) {
+        lock.writeLock().lock();
+        try {
+            if (version.get() == versionBeforeLoad) {
+                append(message);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(int messageId) {
+        lock.writeLock().lock();
+        try {
+            version.incrementAndGet();
+            index.remove(messageId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * @return the number of resident messages.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private void append(Message message) {
+        String text = message.getMessageText();
+        byte[] textBytes = text == null ? null : text.getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = textBytes == null ? null : textCodec.compress(textBytes);
+        if (compressed != null) {
+            textBytes = compressed;
+        }
+        int recordBytes = align(HEADER_BYTES + (textBytes == null ? 0 : textBytes.length));
+        if (recordBytes > capacity / 2) {
+            index.remove(message.getMessageId()); // too large to keep; make sure no stale copy is served
+            return;
+        }
+        int physical = (int) (head % capacity);
+        int padding = physical + recordBytes > capacity ? capacity - physical : 0;
+        reclaim(padding + recordBytes);
+        if (padding > 0) {
+            log.putInt(physical, WRAP_MARKER);
+            head += padding;
+            physical = 0;
+        }
+
+        int flags = (message.getPostedBy() == null ? POSTED_BY_NULL : 0)
+                | (message.getTimePostedEpoch() == null ? EPOCH_NULL : 0)
+                | (compressed != null ? TEXT_COMPRESSED : 0);
+        log.putInt(physical, message.getMessageId());
+        log.putInt(physical + 4, message.getPostedBy() == null ? 0 : message.getPostedBy());
+        log.putLong(physical + 8, message.getTimePostedEpoch() == null ? 0 : message.getTimePostedEpoch());
+        log.putInt(physical + 16, textBytes == null ? -1 : textBytes.length);
+        log.putInt(physical + 20, flags);
+        if (textBytes != null) {
+            ByteBuffer target = log.duplicate();
+            target.position(physical + HEADER_BYTES);
+            target.put(textBytes);
+        }
+        index.put(message.getMessageId(), head);
+        head += recordBytes;
+    }
+
+    // drop the oldest records until the given number of bytes is free
+    private void reclaim(int bytesNeeded) {
+        while (capacity - (head - tail) < bytesNeeded) {
+            int physical = (int) (tail % capacity);
+            int messageId = log.getInt(physical);
+            if (messageId == WRAP_MARKER) {
+                tail += capacity - physical;
+                continue;
+            }
+            int textLength = log.getInt(physical + 16);
+            if (index.get(messageId) == tail) {
+                index.remove(messageId);
+            }
+            tail += align(HEADER_BYTES + Math.max(textLength, 0));
+        }
+    }
+
+    private Message read(int physical) {
+        int flags = log.getInt(physical + 20);
+        Integer postedBy = (flags & POSTED_BY_NULL) != 0 ? null : log.getInt(physical + 4);
+        Long epoch = (flags & EPOCH_NULL) != 0 ? null : log.getLong(physical + 8);
+        int textLength = log.getInt(physical + 16);
+        int messageId = log.getInt(physical);
+        String text = null;
+        if ((flags & TEXT_COMPRESSED) != 0) {
+            text = textInterner.intern(messageId, textCodec.decompress(log, physical + HEADER_BYTES, textLength));
+        } else if (textLength >= 0) {
+            byte[] textBytes = new byte[textLength];
+            ByteBuffer source = log.duplicate();
+            source.position(physical + HEADER_BYTES);
+            source.get(textBytes);
+            text = textInterner.intern(messageId, new String(textBytes, StandardCharsets.UTF_8));
+        }
+        return new Message(messageId, postedBy, text, epoch);
+    }
+
+    private static int align(int bytes) {
+        return (bytes + 7) & ~7;
+    }
+}
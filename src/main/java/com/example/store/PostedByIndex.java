@@ -0,0 +1,241 @@
+package com.example.store;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory secondary index from postedBy to the ids of the account's messages, built from primitive arrays.
+ *
+ * The keys are split over 16 stripes, each an IntObjectHashMap guarded by its own read-write lock. The ids
+ * of an account are a sorted int[] that is replaced, never modified, on every add() or remove(). A reader
+ * can therefore keep using the array it got from get() without holding any lock.
+ *
+ * load() fills the index from a streamed scan while writes keep flowing. Writes made during the scan go
+ * straight into the index. Ids removed during the scan are remembered so the scan cannot bring them back.
+ * isLoaded() turns true once the scan has been merged; until then get() may be missing messages.
+ */
+public class PostedByIndex {
+
+    private static final int STRIPES = 16;
+    private static final int[] NONE = new int[0];
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private volatile boolean loading;
+    private volatile boolean loaded;
+
+    public PostedByIndex() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * @param postedBy the account id.
+     * @return the ids of the account's messages in ascending order. The array is shared and must not be
+     *     modified.
+     */
+    public int[] get(int postedBy) {
+        Stripe stripe = stripeFor(postedBy);
+        stripe.lock.readLock().lock();
+        try {
+            int[] ids = stripe.idsByPostedBy.get(postedBy);
+            return ids == null ? NONE : ids;
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    public void add(int postedBy, int messageId) {
+        Stripe stripe = stripeFor(postedBy);
+        stripe.lock.writeLock().lock();
+        try {
+            int[] ids = stripe.idsByPostedBy.get(postedBy);
+            if (ids == null) {
+                stripe.idsByPostedBy.put(postedBy, new int[] { messageId });
+                stripe.idCount++;
+                return;
+            }
+            int position = Arrays.binarySearch(ids, messageId);
+            if (position >= 0) {
+                return;
+            }
+            int insertAt = -position - 1;
+            int[] updated = new int[ids.length + 1];
+            System.arraycopy(ids, 0, updated, 0, insertAt);
+            updated[insertAt] = messageId;
+            System.arraycopy(ids, insertAt, updated, insertAt + 1, ids.length - insertAt);
+            stripe.idsByPostedBy.put(postedBy, updated);
+            stripe.idCount++;
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int postedBy, int messageId) {
+        Stripe stripe = stripeFor(postedBy);
+        stripe.lock.writeLock().lock();
+        try {
+            if (loading) {
+                stripe.removedWhileLoading.add(messageId);
+            }
+            int[] ids = stripe.idsByPostedBy.get(postedBy);
+            int position = ids == null ? -1 : Arrays.binarySearch(ids, messageId);
+            if (position < 0) {
+                return;
+            }
+            if (ids.length == 1) {
+                stripe.idsByPostedBy.remove(postedBy);
+            } else {
+                int[] updated = new int[ids.length - 1];
+                System.arraycopy(ids, 0, updated, 0, position);
+                System.arraycopy(ids, position + 1, updated, position, ids.length - position - 1);
+                stripe.idsByPostedBy.put(postedBy, updated);
+            }
+            stripe.idCount--;
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Fill the index from a scan of every (postedBy, messageId) pair and mark it loaded.
+     *
+     * @param scan runs the scan, handing each pair to the given consumer.
+     */
+    public void load(Consumer<IntIntConsumer> scan) {
+        loading = true;
+        try {
+            IntObjectHashMap<IntList> scanned = new IntObjectHashMap<>(1024);
+            scan.accept((postedBy, messageId) -> {
+                IntList ids = scanned.get(postedBy);
+                if (ids == null) {
+                    ids = new IntList();
+                    scanned.put(postedBy, ids);
+                }
+                ids.add(messageId);
+            });
+            for (int postedBy : scanned.keys()) {
+                merge(postedBy, scanned.get(postedBy).toSortedArray());
+            }
+            loaded = true;
+        } finally {
+            loading = false;
+            for (Stripe stripe : stripes) {
+                stripe.lock.writeLock().lock();
+                stripe.removedWhileLoading.clear();
+                stripe.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return the number of accounts with at least one message.
+     */
+    public int getAccountCount() {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.readLock().lock();
+            count += stripe.idsByPostedBy.size();
+            stripe.lock.readLock().unlock();
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of indexed message ids.
+     */
+    public long getMessageCount() {
+        long count = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.readLock().lock();
+            count += stripe.idCount;
+            stripe.lock.readLock().unlock();
+        }
+        return count;
+    }
+
+    // union the scanned ids with what writes already added, minus ids removed since the scan started
+    private void merge(int postedBy, int[] scannedIds) {
+        Stripe stripe = stripeFor(postedBy);
+        stripe.lock.writeLock().lock();
+        try {
+            int[] current = stripe.idsByPostedBy.get(postedBy);
+            if (current == null) {
+                current = NONE;
+            }
+            int[] merged = new int[current.length + scannedIds.length];
+            int size = 0;
+            int i = 0;
+            int j = 0;
+            while (i < current.length || j < scannedIds.length) {
+                int next;
+                if (j == scannedIds.length || (i < current.length && current[i] <= scannedIds[j])) {
+                    next = current[i++];
+                } else {
+                    next = scannedIds[j++];
+                    if (stripe.removedWhileLoading.contains(next)) {
+                        continue;
+                    }
+                }
+                if (size == 0 || merged[size - 1] != next) {
+                    merged[size++] = next;
+                }
+            }
+            if (size > 0) {
+                stripe.idsByPostedBy.put(postedBy, size == merged.length ? merged : Arrays.copyOf(merged, size));
+                stripe.idCount += size - current.length;
+            }
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    private Stripe stripeFor(int postedBy) {
+        int h = postedBy * 0x9E3779B9;
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    private static class Stripe {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final IntObjectHashMap<int[]> idsByPostedBy = new IntObjectHashMap<>(64);
+        private final IntList removedWhileLoading = new IntList();
+        private long idCount;
+    }
+
+    // growable int array, just enough for building the index
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private boolean contains(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void clear() {
+            size = 0;
+        }
+
+        private int[] toSortedArray() {
+            int[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Storage codec for message texts, used by the stores that lay out their own bytes (MessageLogStore and
+ * OffHeapMessageStore). Callers keep a flag per record telling whether its text was compressed.
+ *
+ * With type "deflate" a text of at least min-bytes UTF-8 bytes is compressed with java.util.zip at the
+ * configured level, and kept compressed only if that makes it smaller. The encoded form is the original
+ * length as an int followed by the deflate stream. Texts under min-bytes (128 by default) are stored as
+ * they are: deflate cannot gain much on them. The 255 character limit allows up to 765 UTF-8 bytes, so the
+ * longer messages do reach the deflater; the size check keeps only those it actually shrinks.
+ *
+ * An optional preset dictionary (app.store.text-codec.dictionary, a file of text typical of the messages)
+ * lets short and medium texts compress against phrases they share with it. A log written with a dictionary
+ * can only be read with the same dictionary.
+ *
+ * Deflater and Inflater are not thread-safe, so each thread keeps its own.
+ */
+@Component
+public class TextCodec {
+
+    /** Stores every text as it is; for stores built outside the application context. */
+    public static final TextCodec NONE =
+            new TextCodec("none", Integer.MAX_VALUE, Deflater.DEFAULT_COMPRESSION, (byte[]) null);
+
+    private static final int LENGTH_BYTES = 4;
+
+    private final boolean enabled;
+    private final int minBytes;
+    private final int level;
+    private final byte[] dictionary;
+    private final ThreadLocal<Deflater> deflaters;
+    private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+
+    private final LongAdder compressed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder decompressed = new LongAdder();
+    private final LongAdder decompressNanos = new LongAdder();
+    private final AtomicLong maxDecompressNanos = new AtomicLong();
+
+    @Autowired
+    public TextCodec(@Value("${app.store.text-codec.type:none}") String type,
+            @Value("${app.store.text-codec.min-bytes:128}") int minBytes,
+            @Value("${app.store.text-codec.level:6}") int level,
+            @Value("${app.store.text-codec.dictionary:}") String dictionaryPath) {
+        this(type, minBytes, level, readDictionary(dictionaryPath));
+    }
+
+    public TextCodec(String type, int minBytes, int level, byte[] dictionary) {
+        if (!type.equals("none") && !type.equals("deflate")) {
+            throw new IllegalArgumentException("Unknown text codec " + type + "; expected none or deflate");
+        }
+        this.enabled = type.equals("deflate");
+        this.minBytes = minBytes;
+        this.level = level;
+        this.dictionary = dictionary;
+        this.deflaters = ThreadLocal.withInitial(() -> new Deflater(level));
+    }
+
+    /**
+     * @param text the UTF-8 bytes of a text.
+     * @return the encoded text, or null if it is to be stored as it is.
+     */
+    public byte[] compress(byte[] text) {
+        if (!enabled || text.length < minBytes) {
+            return null;
+        }
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        if (dictionary != null) {
+            deflater.setDictionary(dictionary);
+        }
+        deflater.setInput(text);
+        deflater.finish();
+        // anything that does not fit in the original size is not worth keeping
+        byte[] encoded = new byte[LENGTH_BYTES + text.length];
+        int length = LENGTH_BYTES + deflater.deflate(encoded, LENGTH_BYTES, text.length);
+        if (!deflater.finished() || length >= text.length) {
+            skipped.increment();
+            return null;
+        }
+        ByteBuffer.wrap(encoded).putInt(0, text.length);
+        compressed.increment();
+        bytesIn.add(text.length);
+        bytesOut.add(length);
+        return Arrays.copyOf(encoded, length);
+    }
+
+    /**
+     * @param source the buffer holding an encoded text.
+     * @param offset where the encoded text starts.
+     * @param length the length of the encoded text.
+     * @return the text.
+     */
+    public String decompress(ByteBuffer source, int offset, int length) {
+        long start = System.nanoTime();
+        byte[] encoded = new byte[length - LENGTH_BYTES];
+        ByteBuffer input = source.duplicate();
+        input.position(offset + LENGTH_BYTES);
+        input.get(encoded);
+        byte[] text = new byte[source.getInt(offset)];
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setInput(encoded);
+        try {
+            int inflated = inflater.inflate(text);
+            if (inflater.needsDictionary()) {
+                if (dictionary == null) {
+                    throw new IllegalStateException("Message text was compressed with a dictionary; set "
+                            + "app.store.text-codec.dictionary to the same file");
+                }
+                inflater.setDictionary(dictionary);
+                inflated += inflater.inflate(text, inflated, text.length - inflated);
+            }
+            if (inflated != text.length) {
+                throw new IllegalStateException("Compressed message text is truncated");
+            }
+        } catch (DataFormatException | IllegalArgumentException e) {
+            throw new IllegalStateException("Compressed message text is damaged or needs another dictionary", e);
+        }
+        long nanos = System.nanoTime() - start;
+        decompressed.increment();
+        decompressNanos.add(nanos);
+        maxDecompressNanos.accumulateAndGet(nanos, Math::max);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return how many texts were compressed or skipped for not shrinking, the bytes before and after, the
+     *     ratio, and the count, average and maximum time of decompressions in microseconds.
+     */
+    public Map<String, Object> getStats() {
+        long in = bytesIn.sum();
+        long decompressCount = decompressed.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("type", enabled ? "deflate" : "none");
+        stats.put("minBytes", minBytes);
+        stats.put("level", level);
+        stats.put("dictionaryBytes", dictionary == null ? 0 : dictionary.length);
+        stats.put("compressed", compressed.sum());
+        stats.put("skipped", skipped.sum());
+        stats.put("bytesIn", in);
+        stats.put("bytesOut", bytesOut.sum());
+        stats.put("ratio", in == 0 ? 1.0 : (double) bytesOut.sum() / in);
+        stats.put("decompressed", decompressCount);
+        stats.put("decompressMicrosAvg",
+                decompressCount == 0 ? 0.0 : decompressNanos.sum() / 1_000.0 / decompressCount);
+        stats.put("decompressMicrosMax", maxDecompressNanos.get() / 1_000.0);
+        return stats;
+    }
+
+    private static byte[] readDictionary(String path) {
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+        try {
+            return Files.readAllBytes(Paths.get(path));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the text codec dictionary " + path, e);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.store;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Content-addressed table of message texts, so identical texts read from the stores and caches share one
+ * String instance.
+ *
+ * The table is direct-mapped: the hash of a text picks one slot, and a different text with the same slot
+ * replaces it. Memory is bounded by the number of slots and nothing is ever locked; a lost race only costs a
+ * missed share. A text repeated by bot traffic that loses its slot takes it back on its next lookup, so the
+ * shared copies keep up with whatever is being repeated at the moment.
+ *
+ * The stats count each message at most once while its text holds a slot, so reading the same messages
+ * again does not inflate them: a slot remembers the highest message id it has counted, and a lookup is
+ * counted as shared only for a higher id. Messages read in descending id order are under-counted, which
+ * keeps the estimate of heap saved a lower bound.
+ *
+ * Interning is optional, enabled with app.text-dedup.enabled. When it is off, intern() returns its argument.
+ */
+@Component
+public class TextInterner {
+
+    /** Shares nothing; for stores and caches built outside the application context. */
+    public static final TextInterner DISABLED = new TextInterner(false, 1);
+
+    // String object and byte[] headers on a 64-bit JVM with compressed oops
+    private static final int STRING_OVERHEAD_BYTES = 40;
+
+    private final boolean enabled;
+    // Residents are immutable and safely published, so the slots need no volatile reads
+    private final Resident[] slots;
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder installed = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+    private final LongAdder sharedChars = new LongAdder();
+
+    @Autowired
+    public TextInterner(@Value("${app.text-dedup.enabled:false}") boolean enabled,
+            @Value("${app.text-dedup.slots:65536}") int slots) {
+        this.enabled = enabled;
+        this.slots = new Resident[Integer.highestOneBit(Math.max(1, slots - 1)) << 1];
+    }
+
+    /**
+     * @param messageId the message the text belongs to, for the stats.
+     * @param text a message text, may be null.
+     * @return an equal String, the same instance for every equal text while it holds its slot.
+     */
+    public String intern(int messageId, String text) {
+        if (!enabled || text == null) {
+            return text;
+        }
+        lookups.increment();
+        int h = text.hashCode() * 0x9E3779B9;
+        int slot = (h ^ (h >>> 16)) & (slots.length - 1);
+        Resident resident = slots[slot];
+        if (resident != null && resident.text.equals(text)) {
+            if (messageId > resident.highestMessageId) {
+                slots[slot] = new Resident(resident.text, messageId);
+                shared.increment();
+                sharedChars.add(text.length());
+            }
+            return resident.text;
+        }
+        slots[slot] = new Resident(text, messageId);
+        installed.increment();
+        return text;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return lookups, how many texts took a slot, how many messages were given a text already held for
+     *     another message, the share of such messages among those counted, and an estimate of the heap saved
+     *     by not keeping the duplicate copies (one byte per character plus object headers).
+     */
+    public Map<String, Object> getStats() {
+        long lookupCount = lookups.sum();
+        long installedCount = installed.sum();
+        long sharedCount = shared.sum();
+        long counted = installedCount + sharedCount;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("slots", slots.length);
+        stats.put("lookups", lookupCount);
+        stats.put("installed", installedCount);
+        stats.put("shared", sharedCount);
+        stats.put("duplicateRatio", counted == 0 ? 0.0 : (double) sharedCount / counted);
+        stats.put("estimatedBytesSaved", sharedChars.sum() + sharedCount * STRING_OVERHEAD_BYTES);
+        return stats;
+    }
+
+    private static final class Resident {
+        final String text;
+        final int highestMessageId;
+
+        Resident(String text, int highestMessageId) {
+            this.text = text;
+            this.highestMessageId = highestMessageId;
+        }
+    }
+}
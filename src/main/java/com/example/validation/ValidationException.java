@@ -0,0 +1,19 @@
+package com.example.validation;
+
+/**
+ * A rejected write that has to be reported by throwing. Answered with a 400 by ExceptionAndErrorController.
+ */
+public class ValidationException extends RuntimeException {
+
+    private final Violation violation;
+
+    public ValidationException(Violation violation) {
+        // no stack trace: invalid input is an expected outcome, and attack traffic is mostly invalid input
+        super(violation.getMessage(), null, false, false);
+        this.violation = violation;
+    }
+
+    public Violation getViolation() {
+        return violation;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.validation;
+
+/**
+ * The outcome of a Validator: valid, or rejected for one Violation.
+ *
+ * There is one instance per outcome, built up front, so validating allocates nothing whether the input
+ * passes or not.
+ */
+public final class ValidationResult {
+
+    public static final ValidationResult VALID = new ValidationResult(null);
+
+    private static final ValidationResult[] REJECTED = new ValidationResult[Violation.values().length];
+
+    static {
+        for (Violation violation : Violation.values()) {
+            REJECTED[violation.ordinal()] = new ValidationResult(violation);
+        }
+    }
+
+    private final Violation violation;
+
+    private ValidationResult(Violation violation) {
+        this.violation = violation;
+    }
+
+    public static ValidationResult rejected(Violation violation) {
+        return REJECTED[violation.ordinal()];
+    }
+
+    public boolean isValid() {
+        return violation == null;
+    }
+
+    /**
+     * @return the reason for the rejection, or null if the input is valid.
+     */
+    public Violation getViolation() {
+        return violation;
+    }
+
+    /**
+     * @return a stackless exception carrying the violation, for callers that must fail by throwing.
+     */
+    public ValidationException toException() {
+        return new ValidationException(violation);
+    }
+
+    @Override
+    public String toString() {
+        return isValid() ? "VALID" : violation.name();
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.validation;
+
+/**
+ * A validation step over an input. Steps are chained with then(); the chain stops at the first rejection.
+ *
+ * Validators hold no state, so one instance serves every request and every item of a batch.
+ */
+@FunctionalInterface
+public interface Validator<T> {
+
+    ValidationResult validate(T value);
+
+    default Validator<T> then(Validator<? super T> next) {
+        return value -> {
+            ValidationResult result = validate(value);
+            return result.isValid() ? next.validate(value) : result;
+        };
+    }
+}
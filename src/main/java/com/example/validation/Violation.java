@@ -0,0 +1,25 @@
+package com.example.validation;
+
+/**
+ * The reasons a write can be rejected before it reaches the database.
+ */
+public enum Violation {
+    MESSAGE_TEXT_MISSING("Message text is required."),
+    MESSAGE_TEXT_BLANK("Message text must not be blank."),
+    MESSAGE_TEXT_TOO_LONG("Message text is too long."),
+    POSTED_BY_MISSING("postedBy is required."),
+    USERNAME_MISSING("Username is required."),
+    USERNAME_BLANK("Username must not be blank."),
+    PASSWORD_MISSING("Password is required."),
+    PASSWORD_TOO_SHORT("Password must be more than 4 characters.");
+
+    private final String message;
+
+    Violation(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.validation;
+
+import com.example.entity.Account;
+import com.example.entity.Message;
+
+/**
+ * The validation pipelines of the message and account writes. MessageService and AccountService run them
+ * first, before any database access.
+ */
+public final class WriteValidators {
+
+    /** Longest message text accepted on create: under 255 characters. */
+    public static final int MAX_CREATED_TEXT_LENGTH = 254;
+
+    /** Longest message text accepted on update: not over 255 characters. */
+    public static final int MAX_UPDATED_TEXT_LENGTH = 255;
+
+    public static final Validator<Message> CREATE_MESSAGE = postedBy().then(messageText(MAX_CREATED_TEXT_LENGTH));
+
+    public static final Validator<Message> UPDATE_MESSAGE = messageText(MAX_UPDATED_TEXT_LENGTH);
+
+    public static final Validator<Account> REGISTER_ACCOUNT = username(true).then(password(true));
+
+    public static final Validator<Account> LOGIN_ACCOUNT = username(false).then(password(false));
+
+    private WriteValidators() {
+    }
+
+    private static Validator<Message> messageText(int maxLength) {
+        return message -> {
+            String text = message.getMessageText();
+            if (text == null) {
+                return ValidationResult.rejected(Violation.MESSAGE_TEXT_MISSING);
+            }
+            if (text.isEmpty()) {
+                return ValidationResult.rejected(Violation.MESSAGE_TEXT_BLANK);
+            }
+            if (text.length() > maxLength) {
+                return ValidationResult.rejected(Violation.MESSAGE_TEXT_TOO_LONG);
+            }
+            return ValidationResult.VALID;
+        };
+    }
+
+    private static Validator<Message> postedBy() {
+        return message -> message.getPostedBy() == null
+                ? ValidationResult.rejected(Violation.POSTED_BY_MISSING)
+                : ValidationResult.VALID;
+    }
+
+    // registration also enforces the format rules; login only needs something to compare
+    private static Validator<Account> username(boolean checkFormat) {
+        return account -> {
+            String username = account.getUsername();
+            if (username == null) {
+                return ValidationResult.rejected(Violation.USERNAME_MISSING);
+            }
+            if (checkFormat && username.isEmpty()) {
+                return ValidationResult.rejected(Violation.USERNAME_BLANK);
+            }
+            return ValidationResult.VALID;
+        };
+    }
+
+    private static Validator<Account> password(boolean checkFormat) {
+        return account -> {
+            String password = account.getPassword();
+            if (password == null) {
+                return ValidationResult.rejected(Violation.PASSWORD_MISSING);
+            }
+            if (checkFormat && password.length() <= 4) {
+                return ValidationResult.rejected(Violation.PASSWORD_TOO_SHORT);
+            }
+            return ValidationResult.VALID;
+        };
+    }
+}
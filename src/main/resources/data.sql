@@ -1,3 +1,5 @@
+drop table if exists outbox;
+drop table if exists follow;
 drop table if exists message;
 drop table if exists account;
 create table account (
@@ -12,6 +14,24 @@ create table message (
     timePostedEpoch bigint,
     foreign key (postedBy) references account(accountId)
 );
+-- ids of the @GeneratedValue entities; Hibernate only creates this itself when it exports the schema
+create sequence if not exists hibernate_sequence start with 1 increment by 1;
+create table follow (
+    followId int primary key auto_increment,
+    followerId int not null,
+    followeeId int not null,
+    unique (followerId, followeeId),
+    foreign key (followerId) references account(accountId),
+    foreign key (followeeId) references account(accountId)
+);
+create table outbox (
+    eventId bigint primary key auto_increment,
+    eventType varchar(16) not null,
+    messageId int not null,
+    postedBy int,
+    payload varchar(2048),
+    createdAt bigint not null
+);
 
 -- Starting test values with ids of 9999 to avoid test issues
 insert into account values (9999, 'testuser1', 'password');
@@ -0,0 +1,42 @@
+package com.example;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.example.cache.AccountChange;
+import com.example.cache.AccountChangeChannel;
+import com.example.cache.EmbeddedRemoteMessageCache;
+
+public class AccountChangeChannelTest {
+
+    /**
+     * A registration and a follow made on one node reach the listeners of the other node, in order, and not
+     * the listeners of the node that made them.
+     */
+    @Test
+    public void changesReachOnlyTheOtherNodes() throws InterruptedException {
+        EmbeddedRemoteMessageCache remote = new EmbeddedRemoteMessageCache(60000);
+        AccountChangeChannel nodeA = new AccountChangeChannel(remote);
+        AccountChangeChannel nodeB = new AccountChangeChannel(remote);
+        List<AccountChange> receivedByA = new CopyOnWriteArrayList<>();
+        List<AccountChange> receivedByB = new CopyOnWriteArrayList<>();
+        nodeA.addListener(receivedByA::add);
+        nodeB.addListener(receivedByB::add);
+
+        nodeA.publish(AccountChange.Type.REGISTERED, 7, "newuser", null);
+        nodeA.publish(AccountChange.Type.FOLLOWED, 7, null, 9999);
+        for (int i = 0; i < 100 && receivedByB.size() < 2; i++) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(2, receivedByB.size());
+        Assertions.assertEquals(AccountChange.Type.REGISTERED, receivedByB.get(0).getType());
+        Assertions.assertEquals("newuser", receivedByB.get(0).getUsername());
+        Assertions.assertEquals(AccountChange.Type.FOLLOWED, receivedByB.get(1).getType());
+        Assertions.assertEquals(9999, receivedByB.get(1).getFolloweeId());
+        Assertions.assertTrue(receivedByA.isEmpty());
+        remote.shutdown();
+    }
+}
@@ -5,6 +5,7 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.Map;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
@@ -14,6 +15,7 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.context.ApplicationContext;
 
 import com.example.entity.Message;
+import com.example.jdbc.RequestStatements;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class CreateMessageTest {	
@@ -126,4 +128,58 @@ public class CreateMessageTest {
         int status = response.statusCode();
         Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
     }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages with valid message credentials, then polling
+     * GET localhost:8080/diagnostics/outbox
+     * 
+     * Expected Response:
+     *  The CREATED event is published by the relay and the outbox is empty again
+     */
+    @Test
+    public void createMessagePublishesOutboxEvent() throws IOException, InterruptedException {
+    	String json = "{\"postedBy\":9999,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792}";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode());
+        HttpRequest outboxRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/diagnostics/outbox"))
+                .build();
+        Map<?, ?> stats = null;
+        for (int i = 0; i < 50; i++) {
+            stats = objectMapper.readValue(webClient.send(outboxRequest, HttpResponse.BodyHandlers.ofString()).body(),
+                    Map.class);
+            if (((Number) stats.get("published")).longValue() >= 1) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        Assertions.assertEquals(1, ((Number) stats.get("published")).longValue(), "Actual=" + stats);
+        Assertions.assertEquals(0, ((Number) stats.get("pending")).longValue(), "Actual=" + stats);
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages with valid message credentials
+     * 
+     * Expected Statements:
+     *  The existence check of the account reads the whole message table, which the statement inspector
+     *  flags as an unbounded query.
+     */
+    @Test
+    public void createMessageFlagsUnboundedQuery() throws Exception {
+    	String json = "{\"postedBy\":9999,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792}";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        RequestStatements statements = QueryCountAssertions.inspect(app, "SocialMediaController.createMessage",
+                () -> webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString()));
+        Assertions.assertFalse(statements.getUnboundedQueries().isEmpty(), "Actual=" + statements.getStatementsByCaller());
+        QueryCountAssertions.assertAtMostStatements(5, statements);
+    }
 }
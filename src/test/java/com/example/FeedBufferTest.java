@@ -0,0 +1,73 @@
+package com.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.example.feed.FeedBuffer;
+
+public class FeedBufferTest {
+
+    /**
+     * Appending past capacity keeps only the newest ids, and pages walk back from the newest.
+     */
+    @Test
+    public void fullBufferKeepsNewestIds() {
+        FeedBuffer buffer = new FeedBuffer(3);
+        for (int id = 1; id <= 5; id++) {
+            buffer.add(id);
+        }
+        Assertions.assertEquals(3, buffer.size());
+        Assertions.assertArrayEquals(new int[] {5, 4, 3}, buffer.readNewest(Integer.MAX_VALUE, 10));
+        Assertions.assertArrayEquals(new int[] {3}, buffer.readNewest(4, 10));
+    }
+
+    /**
+     * Out-of-order and duplicate ids keep the buffer sorted and distinct.
+     */
+    @Test
+    public void outOfOrderAndDuplicateIdsStaySorted() {
+        FeedBuffer buffer = new FeedBuffer(4);
+        buffer.add(10);
+        buffer.add(30);
+        buffer.add(20);
+        buffer.add(30);
+        buffer.merge(new int[] {25, 5, 10});
+        Assertions.assertArrayEquals(new int[] {30, 25, 20, 10}, buffer.readNewest(Integer.MAX_VALUE, 10));
+    }
+
+    /**
+     * A removed id is no longer read, and the ids around it keep their order.
+     */
+    @Test
+    public void removedIdIsNotRead() {
+        FeedBuffer buffer = new FeedBuffer(4);
+        for (int id = 1; id <= 4; id++) {
+            buffer.add(id);
+        }
+        Assertions.assertTrue(buffer.remove(3));
+        Assertions.assertFalse(buffer.remove(3));
+        Assertions.assertArrayEquals(new int[] {4, 2, 1}, buffer.readNewest(Integer.MAX_VALUE, 10));
+        buffer.add(5);
+        buffer.add(6);
+        Assertions.assertArrayEquals(new int[] {6, 5, 4, 2}, buffer.readNewest(Integer.MAX_VALUE, 10));
+    }
+
+    /**
+     * A cursor anywhere in a wrapped buffer, including between held ids and outside them, pages back from
+     * the newest id below it.
+     */
+    @Test
+    public void cursorPagesAcrossTheWrap() {
+        FeedBuffer buffer = new FeedBuffer(5);
+        for (int id = 2; id <= 16; id += 2) {
+            buffer.add(id);
+        }
+        // holds 8, 10, 12, 14, 16 with the oldest in the middle of the array
+        Assertions.assertArrayEquals(new int[] {14, 12}, buffer.readNewest(16, 2));
+        Assertions.assertArrayEquals(new int[] {12, 10, 8}, buffer.readNewest(13, 10));
+        Assertions.assertArrayEquals(new int[] {16, 14, 12, 10, 8}, buffer.readNewest(17, 10));
+        Assertions.assertArrayEquals(new int[0], buffer.readNewest(8, 10));
+        Assertions.assertArrayEquals(new int[0], buffer.readNewest(1, 10));
+        Assertions.assertArrayEquals(new int[0], new FeedBuffer(5).readNewest(Integer.MAX_VALUE, 10));
+    }
+}
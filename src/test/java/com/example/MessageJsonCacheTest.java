@@ -0,0 +1,55 @@
+package com.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.example.cache.MessageJsonCache;
+import com.example.cache.MessageJsonCache.CachedJson;
+import com.example.entity.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class MessageJsonCacheTest {
+
+    /**
+     * A load that read the row before a write's eviction is served but not cached.
+     */
+    @Test
+    public void loadRacingAnEvictionIsNotCached() {
+        MessageJsonCache cache = new MessageJsonCache(new ObjectMapper(), 16);
+        CachedJson stale = cache.get(1, id -> {
+            Message before = new Message(1, 1, "before", 1669947792L);
+            cache.evict(1);
+            return before;
+        });
+        Assertions.assertNotNull(stale);
+        Assertions.assertNull(cache.getIfPresent(1));
+        CachedJson fresh = cache.get(1, id -> new Message(1, 1, "after", 1669947792L));
+        Assertions.assertTrue(new String(fresh.getBody()).contains("after"));
+        Assertions.assertSame(fresh, cache.getIfPresent(1));
+    }
+
+    /**
+     * A full cache keeps caching new entries, replacing ones not read since the clock hand last passed.
+     */
+    @Test
+    public void fullCacheReplacesUnreferencedEntries() {
+        MessageJsonCache cache = new MessageJsonCache(new ObjectMapper(), 4);
+        for (int id = 1; id <= 4; id++) {
+            cache.get(id, MessageJsonCacheTest::message);
+        }
+        cache.get(1, MessageJsonCacheTest::message);
+        cache.get(5, MessageJsonCacheTest::message);
+        Assertions.assertEquals(4, cache.size());
+        Assertions.assertNotNull(cache.getIfPresent(5));
+        Assertions.assertNotNull(cache.getIfPresent(1));
+        for (int id = 6; id <= 100; id++) {
+            cache.get(id, MessageJsonCacheTest::message);
+        }
+        Assertions.assertEquals(4, cache.size());
+        Assertions.assertNotNull(cache.getIfPresent(100));
+    }
+
+    private static Message message(int id) {
+        return new Message(id, 1, "message " + id, 1669947792L);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class MessageLogBackendTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * On the first boot with the message-log backend, the log is seeded from the database before the
+     * PostedByIndex is loaded, so an account's messages are found.
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: JSON representation of the seeded message of account 9999
+     */
+    @Test
+    public void firstBootServesSeededMessagesByAccount() throws IOException, InterruptedException {
+        ApplicationContext app = SpringApplication.run(SocialMediaApp.class,
+                "--spring.profiles.active=message-log", "--app.store.message-log.directory=" + directory);
+        try {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/accounts/9999/messages"))
+                    .build();
+            HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+            int status = response.statusCode();
+            Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+            List<Message> expectedResult = new ArrayList<Message>();
+            expectedResult.add(new Message(9999, 9999, "test message 1", 1669947792L));
+            List<Message> actualResult = new ObjectMapper().readValue(response.body(),
+                    new TypeReference<List<Message>>(){});
+            Assertions.assertEquals(expectedResult, actualResult, "Expected=" + expectedResult + ", Actual=" + actualResult);
+        } finally {
+            SpringApplication.exit(app);
+        }
+    }
+}
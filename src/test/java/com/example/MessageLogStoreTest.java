@@ -0,0 +1,252 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.entity.Message;
+import com.example.store.MessageLogStore;
+import com.example.store.TextCodec;
+
+public class MessageLogStoreTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Saves, updates and deletes are all recovered when the log is opened again.
+     */
+    @Test
+    public void reopenedLogReplaysEveryChange() {
+        MessageLogStore store = new MessageLogStore(directory, 4096, 0.5, false);
+        Message first = store.save(new Message(9999, "test message 1", 1669947792L));
+        Message second = store.save(new Message(9999, "test message 2", 1669947793L));
+        store.save(new Message(8888, "test message 3", 1669947794L));
+        store.save(new Message(first.getMessageId(), 9999, "updated message", 1669947792L));
+        store.deleteById(second.getMessageId());
+        store.close();
+
+        MessageLogStore reopened = new MessageLogStore(directory, 4096, 0.5, false);
+        Assertions.assertEquals(2, reopened.findAll().size());
+        Assertions.assertEquals("updated message", reopened.findByMessageId(first.getMessageId()).getMessageText());
+        Assertions.assertNull(reopened.findByMessageId(second.getMessageId()));
+        Assertions.assertEquals(1, reopened.findByPostedBy(9999).size());
+        Message next = reopened.save(new Message(8888, "test message 4", 1669947795L));
+        Assertions.assertEquals(4, next.getMessageId());
+        reopened.close();
+    }
+
+    /**
+     * A torn record at the end of the log is dropped and the records before it are kept.
+     */
+    @Test
+    public void damagedTailIsIgnored() throws IOException {
+        MessageLogStore store = new MessageLogStore(directory, 4096, 0.5, false);
+        store.save(new Message(9999, "test message 1", 1669947792L));
+        store.save(new Message(9999, "test message 2", 1669947793L));
+        store.close();
+
+        // flip a byte in the text of the second record
+        try (FileChannel channel = FileChannel.open(directory.resolve("0000000000.log"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {'X'}), 44 + 38);
+        }
+
+        MessageLogStore reopened = new MessageLogStore(directory, 4096, 0.5, false);
+        Assertions.assertEquals(1, reopened.findAll().size());
+        Assertions.assertEquals("test message 1", reopened.findByMessageId(1).getMessageText());
+        reopened.save(new Message(9999, "test message 3", 1669947794L));
+        reopened.close();
+        Assertions.assertEquals(2, new MessageLogStore(directory, 4096, 0.5, false).findAll().size());
+    }
+
+    /**
+     * Overwriting the same messages many times keeps the number of segment files bounded.
+     */
+    @Test
+    public void compactionDropsOverwrittenRecords() {
+        MessageLogStore store = new MessageLogStore(directory, 4096, 0.5, false);
+        for (int id = 1; id <= 10; id++) {
+            store.save(new Message(9999, "test message " + id, 1669947792L));
+        }
+        for (int round = 0; round < 200; round++) {
+            int id = round % 10 + 1;
+            store.save(new Message(id, 9999, "test message " + id + " round " + round, 1669947792L));
+        }
+        Assertions.assertTrue(store.getSegmentCount() <= 3);
+        Assertions.assertEquals(10, store.findAll().size());
+        Assertions.assertEquals("test message 10 round 199", store.findByMessageId(10).getMessageText());
+        store.close();
+
+        MessageLogStore reopened = new MessageLogStore(directory, 4096, 0.5, false);
+        Assertions.assertEquals(10, reopened.findAll().size());
+        Assertions.assertEquals(11, reopened.save(new Message(9999, "test message 11", 1669947792L)).getMessageId());
+        reopened.close();
+    }
+
+    /**
+     * Compacting the segment that holds the first version of the newest message keeps its latest text.
+     */
+    @Test
+    public void updateThenCompactKeepsLatestText() {
+        MessageLogStore store = new MessageLogStore(directory, 4096, 0.5, false);
+        Message message = store.save(new Message(9999, "test message 1", 1669947792L));
+        for (int round = 0; round < 200; round++) {
+            store.save(new Message(message.getMessageId(), 9999, "updated message " + round, 1669947792L));
+        }
+        Assertions.assertTrue(store.getSegmentCount() <= 3);
+        Assertions.assertEquals("updated message 199", store.findByMessageId(message.getMessageId()).getMessageText());
+        store.close();
+
+        MessageLogStore reopened = new MessageLogStore(directory, 4096, 0.5, false);
+        Assertions.assertEquals(1, reopened.findAll().size());
+        Assertions.assertEquals("updated message 199",
+                reopened.findByMessageId(message.getMessageId()).getMessageText());
+        Assertions.assertEquals(2, reopened.save(new Message(9999, "test message 2", 1669947793L)).getMessageId());
+        reopened.close();
+    }
+
+    /**
+     * Compacting the segment that holds the newest message after it was deleted does not bring it back, and
+     * its id is still not handed out again.
+     */
+    @Test
+    public void deleteThenCompactStaysDeleted() {
+        MessageLogStore store = new MessageLogStore(directory, 4096, 0.5, false);
+        for (int id = 1; id <= 60; id++) {
+            store.save(new Message(9999, "test message " + id, 1669947792L));
+        }
+        Message deleted = store.save(new Message(9999, "test message 61", 1669947793L));
+        // roll over to a second segment, with the first one still mostly live
+        for (int round = 0; round < 40; round++) {
+            store.save(new Message(1, 9999, "updated message " + round, 1669947792L));
+        }
+        store.deleteById(deleted.getMessageId());
+        for (int id = 2; id <= 60; id++) {
+            store.deleteById(id);
+        }
+        for (int round = 40; round < 240; round++) {
+            store.save(new Message(1, 9999, "updated message " + round, 1669947792L));
+            Assertions.assertNull(store.findByMessageId(deleted.getMessageId()), "Back after round " + round);
+        }
+        Assertions.assertTrue(store.getSegmentCount() <= 3);
+        store.close();
+
+        MessageLogStore reopened = new MessageLogStore(directory, 4096, 0.5, false);
+        Assertions.assertNull(reopened.findByMessageId(deleted.getMessageId()));
+        Assertions.assertEquals(1, reopened.findByPostedBy(9999).size());
+        Assertions.assertEquals(62, reopened.save(new Message(9999, "test message 62", 1669947794L)).getMessageId());
+        reopened.close();
+    }
+
+    /**
+     * A delete outlives the segment of the put it hid while an older segment still holds an earlier put of
+     * the same message.
+     */
+    @Test
+    public void deleteOutlivesTheSegmentOfTheLatestPut() {
+        MessageLogStore store = new MessageLogStore(directory, 4096, 0.5, false);
+        Message target = store.save(new Message(9999, "first text", 1669947792L));
+        // the first segment stays full of messages that never change, so it is never compacted
+        while (store.getSegmentCount() == 1) {
+            store.save(new Message(1, "kept message", 1669947792L));
+        }
+        store.save(new Message(target.getMessageId(), 9999, "second text", 1669947792L));
+        List<Integer> second = new ArrayList<>();
+        while (store.getSegmentCount() == 2) {
+            second.add(store.save(new Message(2, "short-lived message", 1669947792L)).getMessageId());
+        }
+        store.deleteById(target.getMessageId());
+        for (int id : second) {
+            store.deleteById(id);
+        }
+        // the second segment is compacted first, then the one holding the deletes
+        int churn = store.save(new Message(3, "churn", 1669947792L)).getMessageId();
+        for (int round = 0; round < 200; round++) {
+            store.save(new Message(churn, 3, "churn round " + round, 1669947792L));
+            Assertions.assertNull(store.findByMessageId(target.getMessageId()), "Back after round " + round);
+        }
+        store.close();
+
+        MessageLogStore reopened = new MessageLogStore(directory, 4096, 0.5, false);
+        Assertions.assertNull(reopened.findByMessageId(target.getMessageId()));
+        Assertions.assertTrue(reopened.findByPostedBy(2).isEmpty());
+        Assertions.assertEquals("churn round 199", reopened.findByMessageId(churn).getMessageText());
+        reopened.close();
+    }
+
+    /**
+     * Overwrites are reclaimed even when the oldest segment is full of messages that never change.
+     */
+    @Test
+    public void compactionReclaimsNewerSegments() {
+        MessageLogStore store = new MessageLogStore(directory, 4096, 0.5, false);
+        for (int id = 1; id <= 80; id++) {
+            store.save(new Message(9999, "test message " + id, 1669947792L));
+        }
+        for (int round = 0; round < 400; round++) {
+            int id = round % 5 + 1;
+            store.save(new Message(id, 9999, "test message " + id + " round " + round, 1669947792L));
+        }
+        Assertions.assertTrue(store.getSegmentCount() <= 4, "Actual=" + store.getSegmentCount());
+        Assertions.assertEquals(80, store.findAll().size());
+        store.close();
+
+        MessageLogStore reopened = new MessageLogStore(directory, 4096, 0.5, false);
+        Assertions.assertEquals(80, reopened.findAll().size());
+        Assertions.assertEquals("test message 5 round 399", reopened.findByMessageId(5).getMessageText());
+        reopened.close();
+    }
+
+    /**
+     * Inside a transaction nothing reaches the log until commit, and a rolled back transaction leaves
+     * nothing behind.
+     */
+    @Test
+    public void transactionalWritesWaitForCommit() {
+        MessageLogStore store = new MessageLogStore(directory, 4096, 0.5, false);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            store.save(new Message(9999, "test message 1", 1669947792L));
+            Assertions.assertTrue(store.findAll().isEmpty());
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            synchronizations.forEach(synchronization -> synchronization.beforeCommit(false));
+            synchronizations.forEach(synchronization -> synchronization.afterCompletion(
+                    TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        Assertions.assertTrue(store.findAll().isEmpty());
+        store.close();
+        Assertions.assertTrue(new MessageLogStore(directory, 4096, 0.5, false).findAll().isEmpty());
+    }
+
+    /**
+     * Long texts are stored compressed and read back after a reopen; short texts are stored as they are.
+     */
+    @Test
+    public void compressedTextsSurviveReopen() {
+        TextCodec codec = new TextCodec("deflate", 64, 6, (byte[]) null);
+        String longText = "buy followers now, limited offer, click the link in my profile. ".repeat(4);
+        MessageLogStore store = new MessageLogStore(directory, 4096, 0.5, false, codec);
+        Message compressed = store.save(new Message(9999, longText, 1669947792L));
+        Message plain = store.save(new Message(9999, "test message 1", 1669947793L));
+        store.close();
+        Assertions.assertEquals(1L, codec.getStats().get("compressed"));
+        Assertions.assertTrue((double) codec.getStats().get("ratio") < 0.5, "Actual=" + codec.getStats());
+
+        MessageLogStore reopened = new MessageLogStore(directory, 4096, 0.5, false, codec);
+        Assertions.assertEquals(longText, reopened.findByMessageId(compressed.getMessageId()).getMessageText());
+        Assertions.assertEquals("test message 1", reopened.findByMessageId(plain.getMessageId()).getMessageText());
+        reopened.close();
+    }
+}
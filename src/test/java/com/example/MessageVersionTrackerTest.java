@@ -0,0 +1,31 @@
+package com.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.example.cache.MessageVersionTracker;
+import com.example.cache.MessageVersionTracker.Version;
+
+public class MessageVersionTrackerTest {
+
+    /**
+     * A change's Last-Modified is a whole second after the change, and is only handed out once that second
+     * is over, since If-Modified-Since cannot tell apart changes within one second.
+     */
+    @Test
+    public void lastModifiedIsTheEndOfTheSecondOfTheChange() throws InterruptedException {
+        MessageVersionTracker tracker = new MessageVersionTracker();
+        long changedAt = System.currentTimeMillis();
+        tracker.bump(9999);
+        Version version = tracker.getAccountVersion(9999);
+        long lastModified = version.getLastModified();
+        Assertions.assertEquals(-1, lastModified, "Expected no Last-Modified while its second is still running");
+
+        Thread.sleep(1100);
+        lastModified = version.getLastModified();
+        Assertions.assertEquals(0, lastModified % 1000, "Expected a whole second, Actual=" + lastModified);
+        Assertions.assertTrue(lastModified > changedAt && lastModified <= changedAt + 1000,
+                "Expected the end of the second of " + changedAt + ", Actual=" + lastModified);
+        Assertions.assertEquals(lastModified, tracker.getGlobalVersion().getLastModified());
+    }
+}
@@ -0,0 +1,71 @@
+package com.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.example.entity.Message;
+import com.example.store.OffHeapMessageStore;
+import com.example.store.TextCodec;
+import com.example.store.TextInterner;
+
+public class OffHeapMessageStoreTest {
+
+    /**
+     * A stored message comes back field for field, including null fields.
+     */
+    @Test
+    public void storedMessageRoundTrips() {
+        OffHeapMessageStore store = new OffHeapMessageStore(4096);
+        Message message = new Message(9999, 9999, "test message 1 é中", 1669947792L);
+        Message sparse = new Message(9998, null, null, null);
+        store.put(message);
+        store.put(sparse);
+        Assertions.assertEquals(message, store.get(9999));
+        Assertions.assertEquals(sparse, store.get(9998));
+        Assertions.assertNull(store.get(1));
+    }
+
+    /**
+     * Writing far more than the capacity keeps the newest messages, serves updates, and evicts the oldest.
+     */
+    @Test
+    public void fullLogReclaimsOldestMessages() {
+        OffHeapMessageStore store = new OffHeapMessageStore(4096);
+        for (int id = 1; id <= 1000; id++) {
+            store.put(new Message(id, id % 7, "message number " + id, 1669947792L + id));
+        }
+        store.put(new Message(1000, 6, "updated", 1669948792L));
+        Assertions.assertEquals("updated", store.get(1000).getMessageText());
+        Assertions.assertEquals("message number 999", store.get(999).getMessageText());
+        Assertions.assertNull(store.get(1));
+        Assertions.assertTrue(store.size() < 1000);
+    }
+
+    /**
+     * A load that started before a write is not stored over the write.
+     */
+    @Test
+    public void staleLoadIsNotStored() {
+        OffHeapMessageStore store = new OffHeapMessageStore(4096);
+        long versionBeforeLoad = store.getVersion();
+        store.remove(5);
+        store.putIfUnchanged(new Message(5, 1, "stale", 1L), versionBeforeLoad);
+        Assertions.assertNull(store.get(5));
+    }
+
+    /**
+     * A text compressed by the codec comes back unchanged and takes less of the buffer.
+     */
+    @Test
+    public void compressedTextRoundTrips() {
+        TextCodec codec = new TextCodec("deflate", 64, 6, (byte[]) null);
+        OffHeapMessageStore store = new OffHeapMessageStore(4096, TextInterner.DISABLED, codec);
+        String text = "test message é中 ".repeat(20);
+        store.put(new Message(9999, 9999, text, 1669947792L));
+        store.put(new Message(9998, 9999, "short", 1669947792L));
+        Assertions.assertEquals(text, store.get(9999).getMessageText());
+        Assertions.assertEquals("short", store.get(9998).getMessageText());
+        Assertions.assertEquals(1L, codec.getStats().get("compressed"));
+        Assertions.assertEquals(1L, codec.getStats().get("decompressed"));
+    }
+}
@@ -0,0 +1,27 @@
+package com.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.example.controller.PathIds;
+
+public class PathIdsTest {
+
+    @Test
+    public void parsesWhatParseIntAccepts() {
+        String[] values = { "0", "1", "9999", "-1", "+42", "007", "2147483647", "-2147483648", "000000000002147483647" };
+        for (String value : values) {
+            Assertions.assertEquals(Integer.parseInt(value), PathIds.parse(value), value);
+        }
+    }
+
+    @Test
+    public void rejectsWhatParseIntRejects() {
+        String[] values = { "", "-", "+", "abc", "12a", "1.5", " 1", "2147483648", "-2147483649", "99999999999" };
+        for (String value : values) {
+            Assertions.assertEquals(PathIds.INVALID, PathIds.parse(value), value);
+            Assertions.assertThrows(NumberFormatException.class, () -> Integer.parseInt(value), value);
+        }
+        Assertions.assertEquals(PathIds.INVALID, PathIds.parse(null));
+    }
+}
@@ -0,0 +1,49 @@
+package com.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.example.store.PostedByIndex;
+
+public class PostedByIndexTest {
+
+    /**
+     * Ids come back sorted and without duplicates, and an emptied account disappears.
+     */
+    @Test
+    public void addAndRemoveKeepIdsSorted() {
+        PostedByIndex index = new PostedByIndex();
+        index.add(9999, 3);
+        index.add(9999, 1);
+        index.add(9999, 2);
+        index.add(9999, 2);
+        index.add(8888, 4);
+        Assertions.assertArrayEquals(new int[] { 1, 2, 3 }, index.get(9999));
+        index.remove(9999, 2);
+        Assertions.assertArrayEquals(new int[] { 1, 3 }, index.get(9999));
+        index.remove(8888, 4);
+        Assertions.assertEquals(0, index.get(8888).length);
+        Assertions.assertEquals(1, index.getAccountCount());
+        Assertions.assertEquals(2, index.getMessageCount());
+    }
+
+    /**
+     * Writes made while the scan runs are merged with the scan, and a delete during the scan is not undone.
+     */
+    @Test
+    public void loadKeepsWritesMadeDuringTheScan() {
+        PostedByIndex index = new PostedByIndex();
+        Assertions.assertFalse(index.isLoaded());
+        index.load(consumer -> {
+            consumer.accept(9999, 1);
+            consumer.accept(9999, 2);
+            index.add(9999, 3);
+            index.remove(9999, 2);
+            consumer.accept(8888, 4);
+        });
+        Assertions.assertTrue(index.isLoaded());
+        Assertions.assertArrayEquals(new int[] { 1, 3 }, index.get(9999));
+        Assertions.assertArrayEquals(new int[] { 4 }, index.get(8888));
+        Assertions.assertEquals(3, index.getMessageCount());
+    }
+}
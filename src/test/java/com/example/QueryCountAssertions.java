@@ -0,0 +1,64 @@
+package com.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.springframework.context.ApplicationContext;
+
+import com.example.jdbc.RequestStatements;
+import com.example.jdbc.StatementInspector;
+
+/**
+ * Assertions on the SQL statements an endpoint runs, from the StatementInspector. The test resources enable
+ * the inspector for every test.
+ *
+ * Usage: RequestStatements statements = QueryCountAssertions.inspect(app, "SocialMediaController.getMessageByID",
+ * () -> webClient.send(request, HttpResponse.BodyHandlers.ofString()));
+ */
+public final class QueryCountAssertions {
+
+    private QueryCountAssertions() {
+    }
+
+    @FunctionalInterface
+    public interface Request {
+        void send() throws Exception;
+    }
+
+    /**
+     * Send a request and return the statements its handler ran.
+     *
+     * @param app the running application.
+     * @param handler the handler the request goes to, as Controller.method.
+     * @param request sends the request and waits for the response.
+     * @return the statements of the request.
+     */
+    public static RequestStatements inspect(ApplicationContext app, String handler, Request request)
+            throws Exception {
+        StatementInspector inspector = app.getBean(StatementInspector.class);
+        Assertions.assertTrue(inspector.isEnabled(), "The statement inspector is not enabled");
+        inspector.clearLastRequest(handler);
+        request.send();
+        // the response can reach the client just before the request completes on the server
+        long deadline = System.currentTimeMillis() + 1000;
+        RequestStatements statements;
+        while ((statements = inspector.getLastRequest(handler)) == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertNotNull(statements, "No completed request to " + handler);
+        return statements;
+    }
+
+    public static void assertStatements(int expected, RequestStatements statements) {
+        Assertions.assertEquals(expected, statements.getStatements(), "Unexpected number of statements in "
+                + statements.getHandler() + ": " + statements.getStatementsByCaller());
+    }
+
+    public static void assertAtMostStatements(int max, RequestStatements statements) {
+        Assertions.assertTrue(statements.getStatements() <= max, "Expected at most " + max + " statements in "
+                + statements.getHandler() + ", but it ran " + statements.getStatementsByCaller());
+    }
+
+    public static void assertNoUnboundedQueries(RequestStatements statements) {
+        Assertions.assertTrue(statements.getUnboundedQueries().isEmpty(), "Unbounded queries in "
+                + statements.getHandler() + ": " + statements.getUnboundedQueries());
+    }
+}
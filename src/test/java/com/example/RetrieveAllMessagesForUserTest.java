@@ -83,4 +83,23 @@ public class RetrieveAllMessagesForUserTest {
         List<Message> actualResult = objectMapper.readValue(response.body().toString(), new TypeReference<List<Message>>(){});
         Assertions.assertTrue(actualResult.isEmpty(), "Expected Empty Result, but Result was not Empty");
     }
+
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/abc/messages (the id is not a number)
+     * 
+     * Expected Response:
+     *  Status Code: 400
+     *  Response Body: Invalid account_id
+     */
+    @Test
+    public void getAllMessagesFromUserInvalidAccountId() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/abc/messages"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+        Assertions.assertEquals("Invalid account_id", response.body());
+    }
 }
@@ -6,6 +6,7 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.jupiter.api.AfterEach;
@@ -59,4 +60,46 @@ public class RetrieveAllMessagesTest {
         List<Message> actualResult = objectMapper.readValue(response.body().toString(), new TypeReference<List<Message>>(){});
         Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
     }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages with the ETag of a previous response, before
+     * and after a new message is posted.
+     * 
+     * Expected Response:
+     *  Status Code: 304 while nothing has changed, varying by Accept like the 200, and 200 once a message was posted
+     */
+    @Test
+    public void getAllMessagesNotModifiedUntilMessagePosted() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        String eTag = response.headers().firstValue("ETag").orElse(null);
+        Assertions.assertNotNull(eTag, "Expected an ETag header on the response");
+
+        HttpRequest conditionalRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .header("If-None-Match", eTag)
+                .build();
+        HttpResponse<String> conditionalResponse = webClient.send(conditionalRequest, HttpResponse.BodyHandlers.ofString());
+        int status = conditionalResponse.statusCode();
+        Assertions.assertEquals(304, status, "Expected Status Code 304 - Actual Code was: " + status);
+        List<String> vary = conditionalResponse.headers().allValues("Vary");
+        Assertions.assertTrue(vary.stream().flatMap(value -> Arrays.stream(value.split(",")))
+                .anyMatch(value -> value.trim().equalsIgnoreCase("Accept")), "Expected Vary: Accept, Actual=" + vary);
+
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{"+
+                        "\"postedBy\":9999, " +
+                        "\"messageText\": \"hello message\", " +
+                        "\"timePostedEpoch\": 1669947792}"))
+                .header("Content-Type", "application/json")
+                .build();
+        webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+
+        HttpResponse<String> changedResponse = webClient.send(conditionalRequest, HttpResponse.BodyHandlers.ofString());
+        status = changedResponse.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+    }
 }
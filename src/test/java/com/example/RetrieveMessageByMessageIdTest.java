@@ -14,6 +14,7 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.context.ApplicationContext;
 
 import com.example.entity.Message;
+import com.example.jdbc.RequestStatements;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class RetrieveMessageByMessageIdTest {
@@ -79,4 +80,72 @@ public class RetrieveMessageByMessageIdTest {
         Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
         Assertions.assertTrue(response.body().toString().isEmpty(), "Expected Empty Result, but Result was not Empty");
     }
+
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/9999 with the ETag of a previous response
+     * in the If-None-Match header
+     * 
+     * Expected Response:
+     *  Status Code: 304
+     *  Response Body: 
+     */
+    @Test
+    public void getMessageGivenMessageIdNotModified() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        String eTag = response.headers().firstValue("ETag").orElse(null);
+        Assertions.assertNotNull(eTag, "Expected an ETag header on the response");
+
+        HttpRequest conditionalRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .header("If-None-Match", eTag)
+                .build();
+        HttpResponse<String> conditionalResponse = webClient.send(conditionalRequest, HttpResponse.BodyHandlers.ofString());
+        int status = conditionalResponse.statusCode();
+        Assertions.assertEquals(304, status, "Expected Status Code 304 - Actual Code was: " + status);
+    }
+
+
+    /**
+     * Sending two http requests to GET localhost:8080/messages/9999
+     * 
+     * Expected Statements:
+     *  First request: at most 1, a lookup by primary key
+     *  Second request: none, the message is served from the cache
+     */
+    @Test
+    public void getMessageGivenMessageIdStatementCount() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .build();
+        RequestStatements first = QueryCountAssertions.inspect(app, "SocialMediaController.getMessageByID",
+                () -> webClient.send(request, HttpResponse.BodyHandlers.ofString()));
+        QueryCountAssertions.assertAtMostStatements(1, first);
+        QueryCountAssertions.assertNoUnboundedQueries(first);
+        RequestStatements second = QueryCountAssertions.inspect(app, "SocialMediaController.getMessageByID",
+                () -> webClient.send(request, HttpResponse.BodyHandlers.ofString()));
+        QueryCountAssertions.assertStatements(0, second);
+    }
+
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/abc (the id is not a number)
+     * 
+     * Expected Response:
+     *  Status Code: 400
+     *  Response Body: Invalid message_id
+     */
+    @Test
+    public void getMessageGivenInvalidMessageId() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/abc"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+        Assertions.assertEquals("Invalid message_id", response.body());
+    }
 }
@@ -0,0 +1,177 @@
+package com.example;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.cache.SingleFlight;
+import com.example.cache.SingleFlight.KeyStats;
+import com.example.entity.Message;
+import com.example.service.MessageService;
+import com.example.store.MessageStore;
+
+public class SingleFlightTest {
+    private static final int CALLERS = 200;
+
+    ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Fire 200 concurrent reads of the same account timeline while the first database call is held open.
+     * 
+     * Expected Result:
+     *  The simulated database is called exactly once and every caller receives the same list.
+     */
+    @Test
+    public void concurrentIdenticalReadsCollapseToOneDatabaseCall() throws Exception {
+        SingleFlight<Integer, List<Message>> singleFlight = new SingleFlight<>(10);
+        AtomicInteger databaseCalls = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Message> timeline = List.of(new Message(9999, 9999, "test message 1", 1669947792L));
+
+        Callable<List<Message>> read = () -> {
+            start.await();
+            return singleFlight.execute(9999, () -> {
+                databaseCalls.incrementAndGet();
+                // hold the query open until every caller has joined it
+                long deadline = System.currentTimeMillis() + 10000;
+                while (singleFlight.getStats(9999).getRequests() < CALLERS
+                        && System.currentTimeMillis() < deadline) {
+                    Thread.onSpinWait();
+                }
+                return timeline;
+            });
+        };
+        List<Future<List<Message>>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(read));
+        }
+        start.countDown();
+        for (Future<List<Message>> result : results) {
+            Assertions.assertSame(timeline, result.get(15, TimeUnit.SECONDS));
+        }
+
+        Assertions.assertEquals(1, databaseCalls.get(), "Expected one database call, but was " + databaseCalls.get());
+        KeyStats stats = singleFlight.getStats(9999);
+        Assertions.assertEquals(CALLERS, stats.getRequests());
+        Assertions.assertEquals(1, stats.getExecutions());
+        Assertions.assertEquals(CALLERS - 1, stats.getShared());
+        Assertions.assertEquals(1, stats.getMaxConcurrent());
+        Assertions.assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    /**
+     * Fire 200 concurrent getMessagesByAccountID calls for one account through MessageService while the
+     * first store call is held open.
+     *
+     * Expected Result:
+     *  The store is called exactly once, every caller receives the same list, and the read statistics
+     *  MessageService reports show the calls that shared it.
+     */
+    @Test
+    public void concurrentAccountReadsThroughMessageServiceCallTheStoreOnce() throws Exception {
+        MessageService messageService = new MessageService();
+        AtomicInteger storeCalls = new AtomicInteger();
+        List<Message> timeline = List.of(new Message(9999, 9999, "test message 1", 1669947792L));
+        MessageStore store = (MessageStore) Proxy.newProxyInstance(MessageStore.class.getClassLoader(),
+                new Class<?>[] { MessageStore.class }, (proxy, method, args) -> {
+                    if (!method.getName().equals("findByPostedBy")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    storeCalls.incrementAndGet();
+                    // hold the query open until every caller has joined it
+                    long deadline = System.currentTimeMillis() + 10000;
+                    while (readRequests(messageService, 9999) < CALLERS && System.currentTimeMillis() < deadline) {
+                        Thread.onSpinWait();
+                    }
+                    return timeline;
+                });
+        ReflectionTestUtils.setField(messageService, "messageStore", store);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<List<Message>>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return messageService.getMessagesByAccountID(9999);
+            }));
+        }
+        start.countDown();
+        List<Message> first = results.get(0).get(15, TimeUnit.SECONDS);
+        for (Future<List<Message>> result : results) {
+            Assertions.assertSame(first, result.get(15, TimeUnit.SECONDS));
+        }
+
+        Assertions.assertEquals(1, storeCalls.get(), "Expected one store call, but was " + storeCalls.get());
+        Assertions.assertEquals(timeline, first);
+        KeyStats stats = messageService.getAccountMessagesReadStats().get(9999);
+        Assertions.assertEquals(CALLERS, stats.getRequests());
+        Assertions.assertEquals(1, stats.getExecutions());
+        Assertions.assertEquals(CALLERS - 1, stats.getShared());
+    }
+
+    /**
+     * A failed call is shared with its waiters but does not stick: the next call runs the loader again.
+     */
+    @Test
+    public void failedCallIsNotCached() {
+        SingleFlight<Integer, String> singleFlight = new SingleFlight<>(10);
+        Assertions.assertThrows(IllegalStateException.class, () -> singleFlight.execute(1, () -> {
+            throw new IllegalStateException("database unavailable");
+        }));
+        Assertions.assertEquals("ok", singleFlight.execute(1, () -> "ok"));
+        Assertions.assertEquals(2, singleFlight.getStats(1).getExecutions());
+    }
+
+    /**
+     * A caller that arrives after forget() does not join the call that was in flight before it.
+     */
+    @Test
+    public void forgottenCallIsNotJoined() throws Exception {
+        SingleFlight<Integer, String> singleFlight = new SingleFlight<>(10);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> before = executor.submit(() -> singleFlight.execute(1, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "before the write";
+        }));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        singleFlight.forget(1);
+        Assertions.assertEquals("after the write", singleFlight.execute(1, () -> "after the write"));
+        release.countDown();
+        Assertions.assertEquals("before the write", before.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(2, singleFlight.getStats(1).getExecutions());
+    }
+
+    private static long readRequests(MessageService messageService, int accountId) {
+        KeyStats stats = messageService.getAccountMessagesReadStats().get(accountId);
+        return stats == null ? 0 : stats.getRequests();
+    }
+}
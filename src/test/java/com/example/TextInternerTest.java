@@ -0,0 +1,71 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.example.entity.Message;
+import com.example.store.OffHeapMessageStore;
+import com.example.store.TextCodec;
+import com.example.store.TextInterner;
+
+public class TextInternerTest {
+
+    /**
+     * With 9 in 10 posts repeating one of a few bot texts, the texts read back share a handful of Strings.
+     */
+    @Test
+    public void repeatedTextsShareOneInstance() {
+        TextInterner interner = new TextInterner(true, 1024);
+        OffHeapMessageStore store = new OffHeapMessageStore(1 << 20, interner, TextCodec.NONE);
+        for (int id = 1; id <= 10000; id++) {
+            String text = id % 10 == 0 ? "unique post " + id : "buy followers now " + (id % 5);
+            store.put(new Message(id, id % 100, text, 1669947792L));
+        }
+        List<String> texts = new ArrayList<>();
+        for (int id = 1; id <= 10000; id++) {
+            texts.add(store.get(id).getMessageText());
+        }
+        Map<String, Boolean> distinctInstances = new IdentityHashMap<>();
+        for (String text : texts) {
+            distinctInstances.put(text, Boolean.TRUE);
+        }
+        Assertions.assertEquals("buy followers now 1", store.get(1).getMessageText());
+        // 1000 unique texts, 5 shared bot texts, plus the few bot texts a unique text displaced for a while
+        Assertions.assertTrue(distinctInstances.size() < 1100, "Actual=" + distinctInstances.size());
+
+        Map<String, Object> stats = interner.getStats();
+        Assertions.assertTrue((double) stats.get("duplicateRatio") > 0.85, "Actual=" + stats);
+        Assertions.assertTrue((long) stats.get("estimatedBytesSaved") > 0, "Actual=" + stats);
+    }
+
+    /**
+     * Reading the same messages again shares the same instance but does not count them again.
+     */
+    @Test
+    public void rereadsAreNotCountedAsDuplicates() {
+        TextInterner interner = new TextInterner(true, 1024);
+        String first = interner.intern(1, new String("buy followers now"));
+        for (int round = 0; round < 10; round++) {
+            Assertions.assertSame(first, interner.intern(1, new String("buy followers now")));
+            Assertions.assertSame(first, interner.intern(2, new String("buy followers now")));
+        }
+        Map<String, Object> stats = interner.getStats();
+        Assertions.assertEquals(21L, stats.get("lookups"));
+        Assertions.assertEquals(1L, stats.get("installed"));
+        Assertions.assertEquals(1L, stats.get("shared"));
+        Assertions.assertEquals(0.5, (double) stats.get("duplicateRatio"), 1e-9);
+    }
+
+    @Test
+    public void disabledInternerSharesNothing() {
+        String text = new String("hello message");
+        Assertions.assertSame(text, TextInterner.DISABLED.intern(1, text));
+        Assertions.assertNotSame(text, TextInterner.DISABLED.intern(2, new String("hello message")));
+        Assertions.assertNull(TextInterner.DISABLED.intern(3, null));
+    }
+}
@@ -0,0 +1,75 @@
+package com.example;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.example.cache.CacheInvalidation;
+import com.example.cache.EmbeddedRemoteMessageCache;
+import com.example.cache.TwoLevelMessageCache;
+import com.example.entity.Message;
+import com.example.store.OffHeapMessageStore;
+
+public class TwoLevelMessageCacheTest {
+
+    /**
+     * A message loaded by one node is served to another from the shared tier, and an update on one node
+     * drops the other node's copy.
+     */
+    @Test
+    public void updateOnOneNodeInvalidatesTheOther() throws InterruptedException {
+        EmbeddedRemoteMessageCache remote = new EmbeddedRemoteMessageCache(60000);
+        TwoLevelMessageCache nodeA = new TwoLevelMessageCache(new OffHeapMessageStore(4096), remote);
+        TwoLevelMessageCache nodeB = new TwoLevelMessageCache(new OffHeapMessageStore(4096), remote);
+        List<CacheInvalidation> receivedByB = new CopyOnWriteArrayList<>();
+        nodeB.setInvalidationListener(receivedByB::add);
+        AtomicInteger storeLoads = new AtomicInteger();
+        Message stored = new Message(1, 9999, "test message 1", 1669947792L);
+
+        Assertions.assertEquals(stored, nodeA.load(1, id -> { storeLoads.incrementAndGet(); return stored; }));
+        Assertions.assertEquals(stored, nodeB.load(1, id -> { storeLoads.incrementAndGet(); return stored; }));
+        Assertions.assertEquals(1, storeLoads.get());
+        Assertions.assertNotNull(nodeB.getLocal(1));
+
+        nodeA.onUpdated(new Message(1, 9999, "updated message", 1669947792L));
+        for (int i = 0; i < 100 && receivedByB.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(1, receivedByB.size());
+        Assertions.assertEquals(CacheInvalidation.Type.UPDATED, receivedByB.get(0).getType());
+        Assertions.assertNull(nodeB.getLocal(1));
+        Assertions.assertEquals("updated message", nodeA.getLocal(1).getMessageText());
+        Assertions.assertEquals(1L, nodeB.getStats().get("invalidationsReceived"));
+        Assertions.assertEquals(0L, nodeA.getStats().get("invalidationsReceived"));
+        remote.shutdown();
+    }
+
+    /**
+     * A load that read the store before an update on another node does not put the old text into the shared
+     * tier after the update.
+     */
+    @Test
+    public void loadRacingAnUpdateDoesNotFillTheSharedTier() {
+        EmbeddedRemoteMessageCache remote = new EmbeddedRemoteMessageCache(60000);
+        TwoLevelMessageCache nodeA = new TwoLevelMessageCache(new OffHeapMessageStore(4096), remote);
+        TwoLevelMessageCache nodeB = new TwoLevelMessageCache(new OffHeapMessageStore(4096), remote);
+        Message before = new Message(1, 9999, "test message 1", 1669947792L);
+        Message after = new Message(1, 9999, "updated message", 1669947792L);
+
+        nodeA.load(1, id -> {
+            nodeB.onUpdated(after);
+            return before;
+        });
+        Assertions.assertEquals("updated message", remote.get(1).getMessageText());
+
+        nodeA.load(2, id -> {
+            nodeB.onDeleted(new Message(2, 9999, "test message 2", 1669947792L));
+            return new Message(2, 9999, "test message 2", 1669947792L);
+        });
+        Assertions.assertNull(remote.get(2));
+        remote.shutdown();
+    }
+}
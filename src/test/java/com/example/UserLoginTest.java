@@ -104,4 +104,25 @@ public class UserLoginTest {
         int status = response.statusCode();
         Assertions.assertEquals(401, status, "Expected Status Code 401 - Actual Code was: " + status);
     }
+
+    /**
+     * Sending more http requests to POST localhost:8080/login for one username than its burst allows
+     * 
+     * Expected Response:
+     * 	Status Code: 429 once the burst of 10 attempts is used up
+     */
+    @Test
+    public void loginRateLimitedPerUsername() throws IOException, InterruptedException {
+    	String json = "{\"accountId\":0,\"username\":\"testuser2\",\"password\":\"wrong\"}";
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/login"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        int status = 0;
+        for (int i = 0; i < 15 && status != 429; i++) {
+            status = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString()).statusCode();
+        }
+        Assertions.assertEquals(429, status);
+    }
 }
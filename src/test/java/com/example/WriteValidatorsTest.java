@@ -0,0 +1,57 @@
+package com.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.example.entity.Account;
+import com.example.entity.Message;
+import com.example.validation.ValidationResult;
+import com.example.validation.Violation;
+import com.example.validation.WriteValidators;
+
+public class WriteValidatorsTest {
+
+    @Test
+    public void createMessageStopsAtFirstViolation() {
+        Assertions.assertEquals(Violation.POSTED_BY_MISSING,
+                WriteValidators.CREATE_MESSAGE.validate(new Message(null, "", 0L)).getViolation());
+        Assertions.assertEquals(Violation.MESSAGE_TEXT_MISSING,
+                WriteValidators.CREATE_MESSAGE.validate(new Message(1, null, 0L)).getViolation());
+        Assertions.assertEquals(Violation.MESSAGE_TEXT_BLANK,
+                WriteValidators.CREATE_MESSAGE.validate(new Message(1, "", 0L)).getViolation());
+        Assertions.assertTrue(WriteValidators.CREATE_MESSAGE.validate(new Message(1, "hello", 0L)).isValid());
+    }
+
+    @Test
+    public void createAndUpdateKeepTheirLengthLimits() {
+        Message text255 = new Message(1, "a".repeat(255), 0L);
+        Message text254 = new Message(1, "a".repeat(254), 0L);
+        Assertions.assertEquals(Violation.MESSAGE_TEXT_TOO_LONG,
+                WriteValidators.CREATE_MESSAGE.validate(text255).getViolation());
+        Assertions.assertTrue(WriteValidators.CREATE_MESSAGE.validate(text254).isValid());
+        Assertions.assertTrue(WriteValidators.UPDATE_MESSAGE.validate(text255).isValid());
+        Assertions.assertEquals(Violation.MESSAGE_TEXT_TOO_LONG,
+                WriteValidators.UPDATE_MESSAGE.validate(new Message(1, "a".repeat(256), 0L)).getViolation());
+    }
+
+    @Test
+    public void accountRules() {
+        Assertions.assertEquals(Violation.USERNAME_BLANK,
+                WriteValidators.REGISTER_ACCOUNT.validate(new Account("", "password")).getViolation());
+        Assertions.assertEquals(Violation.PASSWORD_TOO_SHORT,
+                WriteValidators.REGISTER_ACCOUNT.validate(new Account("user", "pass")).getViolation());
+        Assertions.assertTrue(WriteValidators.REGISTER_ACCOUNT.validate(new Account("user", "passw")).isValid());
+        // login only requires credentials to compare; a short password simply does not match
+        Assertions.assertTrue(WriteValidators.LOGIN_ACCOUNT.validate(new Account("user", "pass")).isValid());
+        Assertions.assertEquals(Violation.PASSWORD_MISSING,
+                WriteValidators.LOGIN_ACCOUNT.validate(new Account("user", null)).getViolation());
+    }
+
+    @Test
+    public void rejectionsAreSharedInstances() {
+        ValidationResult first = WriteValidators.UPDATE_MESSAGE.validate(new Message(1, "", 0L));
+        ValidationResult second = WriteValidators.UPDATE_MESSAGE.validate(new Message(2, "", 0L));
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(0, first.toException().getStackTrace().length);
+    }
+}
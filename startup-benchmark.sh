@@ -0,0 +1,68 @@
+#!/usr/bin/env bash
+# Measures time-to-first-request and resident memory of the packaged app: the default profile, the fast-boot
+# profile, the fast-boot profile with an AppCDS archive and, if it was built with mvn -Pnative package, the
+# native executable. Each configuration is started RUNS times; the time from launch to the first 200 from
+# GET /messages is printed in milliseconds, followed by the RSS at that point in MB.
+#
+# Usage: ./startup-benchmark.sh [runs]
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=8080
+WORK=target/startup
+# named in full: a -Pnative build also leaves target/Challenges-1.1-exec.jar behind
+JAR=target/Challenges-1.1.jar
+CLASSPATH="$WORK/BOOT-INF/classes:$WORK/BOOT-INF/lib/*"
+MAIN=com.example.SocialMediaApp
+
+mvn -B -q -DskipTests package
+rm -rf "$WORK" && mkdir -p "$WORK"
+# class data sharing only archives classes loaded from plain jars on the class path, not from the fat jar
+(cd "$WORK" && jar -xf "../../$JAR")
+if [ ! -d "$WORK/BOOT-INF" ]; then
+    echo "$JAR is not the repackaged Spring Boot jar" >&2
+    exit 1
+fi
+
+# runs the given command, prints the milliseconds until the first request succeeds and the RSS in MB
+time_to_first_request() {
+    local start end pid rss
+    start=$(date +%s%N)
+    "$@" > "$WORK/app.log" 2>&1 &
+    pid=$!
+    until curl -sf -o /dev/null "http://localhost:$PORT/messages"; do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "app exited, see $WORK/app.log" >&2
+            return 1
+        fi
+        sleep 0.02
+    done
+    end=$(date +%s%N)
+    rss=$(awk '/VmRSS/ { print int($2 / 1024) }' "/proc/$pid/status")
+    kill "$pid" && wait "$pid" || true
+    echo "$(( (end - start) / 1000000 ))/${rss}"
+}
+
+# training run: record the classes loaded up to the first request, then dump them into a shared archive
+time_to_first_request java -XX:DumpLoadedClassList="$WORK/app.classlist" -cp "$CLASSPATH" "$MAIN" \
+    --spring.profiles.active=fast-boot > /dev/null
+java -Xshare:dump -XX:SharedClassListFile="$WORK/app.classlist" -XX:SharedArchiveFile="$WORK/app.jsa" \
+    -cp "$CLASSPATH" > "$WORK/dump.log" 2>&1
+
+report() {
+    local name=$1
+    shift
+    local times=()
+    for _ in $(seq "$RUNS"); do
+        times+=("$(time_to_first_request "$@")")
+    done
+    echo "$name: ${times[*]} (ms/MB)"
+}
+
+report "default" java -cp "$CLASSPATH" "$MAIN"
+report "fast-boot" java -cp "$CLASSPATH" "$MAIN" --spring.profiles.active=fast-boot
+report "fast-boot + AppCDS" java -XX:SharedArchiveFile="$WORK/app.jsa" -Xshare:auto -cp "$CLASSPATH" "$MAIN" \
+    --spring.profiles.active=fast-boot
+if [ -x target/social-media-app ]; then
+    report "native" target/social-media-app
+fi